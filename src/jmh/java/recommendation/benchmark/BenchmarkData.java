@@ -0,0 +1,60 @@
+package recommendation.benchmark;
+
+import recommendation.model.Movie;
+import recommendation.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic catalog and users fed in memory to the engine and writer benchmarks. Unlike
+ * the files of {@link recommendation.generator.DatasetGenerator}, the catalog is not capped at 1000
+ * movies.
+ */
+public class BenchmarkData {
+    static final String[] GENRES = {
+            "Action", "Adventure", "Animation", "Biography", "Comedy", "Crime", "Documentary", "Drama",
+            "Family", "Fantasy", "History", "Horror", "Music", "Mystery", "Romance", "Science Fiction",
+            "Sport", "Thriller", "War", "Western"
+    };
+    private static final int WATCHED_PER_USER = 5;
+
+    final List<Movie> movies = new ArrayList<>();
+    final List<User> users = new ArrayList<>();
+
+    BenchmarkData(int catalogSize, int userCount, int genresPerMovie) {
+        Random random = new Random(42);
+        for (int i = 0; i < catalogSize; i++) {
+            String word = word(i);
+            List<String> genres = new ArrayList<>();
+            while (genres.size() < Math.min(genresPerMovie, GENRES.length)) {
+                String genre = GENRES[random.nextInt(GENRES.length)];
+                if (!genres.contains(genre)) {
+                    genres.add(genre);
+                }
+            }
+            // past 1000 movies the numbers get longer, which is fine in memory but would not parse
+            movies.add(new Movie("The " + word, "T" + word.charAt(0) + String.format("%03d", i), genres));
+        }
+        for (int u = 0; u < userCount; u++) {
+            List<String> watched = new ArrayList<>();
+            while (catalogSize > 0 && watched.size() < Math.min(WATCHED_PER_USER, catalogSize)) {
+                String movieId = movies.get(random.nextInt(catalogSize)).getMovieId();
+                if (!watched.contains(movieId)) {
+                    watched.add(movieId);
+                }
+            }
+            users.add(new User("User " + word(u), String.format("%08dX", u), watched));
+        }
+    }
+
+    // a capitalized word made of letters only, distinct for every index
+    static String word(int index) {
+        StringBuilder word = new StringBuilder().append((char) ('A' + index % 26));
+        for (int rest = index / 26; rest > 0; rest /= 26) {
+            word.append((char) ('a' + rest % 26));
+        }
+        return word.append("x").toString();
+    }
+}
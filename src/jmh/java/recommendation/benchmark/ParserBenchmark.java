@@ -0,0 +1,96 @@
+package recommendation.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import recommendation.generator.DatasetGenerator;
+import recommendation.log.Log;
+import recommendation.model.MovieCatalog;
+import recommendation.parser.MovieParser;
+import recommendation.parser.ParallelUserParser;
+import recommendation.parser.ReadMode;
+import recommendation.parser.UserParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    // parsed catalogs are capped at 1000 movies by the unique three digit id numbers
+    @Param({"100", "1000"})
+    public int catalogSize;
+
+    @Param({"10000", "100000"})
+    public int userCount;
+
+    @Param({"1", "3"})
+    public int genresPerMovie;
+
+    private Path directory;
+    private String movieFile;
+    private String userFile;
+    private MovieCatalog catalog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Log.setLevel(Log.Level.OFF);
+        DatasetGenerator generator = new DatasetGenerator(42).movieCount(catalogSize).userCount(userCount)
+                .genresPerMovie(genresPerMovie, genresPerMovie).watchedPerUser(1, 20)
+                .popularity(DatasetGenerator.Popularity.ZIPF, 1.0);
+        directory = Files.createTempDirectory("parser-benchmark");
+        movieFile = directory.resolve("movies.txt").toString();
+        userFile = directory.resolve("users.txt").toString();
+        generator.writeMovies(Path.of(movieFile));
+        generator.writeUsers(Path.of(userFile));
+
+        // benchmarking the error path by accident would make every number meaningless
+        MovieParser movieParser = new MovieParser(movieFile);
+        catalog = new MovieCatalog(movieParser.getMovies());
+        UserParser userParser = new UserParser(userFile, catalog);
+        if (!movieParser.success() || !userParser.success()) {
+            throw new IllegalStateException("Invalid benchmark data: "
+                    + (movieParser.success() ? userParser.getError() : movieParser.getError()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public MovieParser movieParserBuffered() {
+        return new MovieParser(movieFile, ReadMode.BUFFERED);
+    }
+
+    @Benchmark
+    public MovieParser movieParserMapped() {
+        return new MovieParser(movieFile, ReadMode.MAPPED);
+    }
+
+    @Benchmark
+    public UserParser userParserBuffered() {
+        return new UserParser(userFile, catalog, ReadMode.BUFFERED);
+    }
+
+    @Benchmark
+    public UserParser userParserMapped() {
+        return new UserParser(userFile, catalog, ReadMode.MAPPED);
+    }
+
+    @Benchmark
+    public ParallelUserParser userParserParallel() {
+        return new ParallelUserParser(userFile, catalog, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,53 @@
+package recommendation.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import recommendation.engine.RecommendationSystem;
+import recommendation.log.Log;
+import recommendation.model.MovieCatalog;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationBenchmark {
+
+    // the engine is fed in memory, so the catalog is not capped by the parsers' id rule
+    @Param({"1000", "100000"})
+    public int catalogSize;
+
+    @Param({"1000", "10000"})
+    public int userCount;
+
+    @Param({"1", "3"})
+    public int genresPerMovie;
+
+    private BenchmarkData data;
+    private MovieCatalog catalog;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Log.setLevel(Log.Level.OFF);
+        data = new BenchmarkData(catalogSize, userCount, genresPerMovie);
+        catalog = new MovieCatalog(data.movies);
+    }
+
+    @Benchmark
+    public MovieCatalog buildCatalog() {
+        return new MovieCatalog(data.movies);
+    }
+
+    @Benchmark
+    public RecommendationSystem recommendSequential() {
+        return new RecommendationSystem(catalog, data.users);
+    }
+
+    @Benchmark
+    public RecommendationSystem recommendParallel() {
+        return new RecommendationSystem(catalog, data.users, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,69 @@
+package recommendation.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import recommendation.parser.Validation;
+import recommendation.parser.ValidationException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record cost of every validation rule on the success path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Param({"1", "3"})
+    public int genresPerMovie;
+
+    private String movieTitle = "The Shawshank Redemption";
+    private String movieId = "TSR001";
+    private String userName = "Hassan Ali";
+    private String userId = "12345678X";
+    private List<String> movieGenres;
+
+    @Setup
+    public void setUp() {
+        movieGenres = List.of(BenchmarkData.GENRES).subList(0, genresPerMovie);
+    }
+
+    @Benchmark
+    public void movieTitleValidation() throws ValidationException {
+        Validation.movieTitleValidation(movieTitle);
+    }
+
+    @Benchmark
+    public void movieIdValidation() throws ValidationException {
+        Validation.movieIdValidation(movieId, movieTitle);
+    }
+
+    @Benchmark
+    public void movieGenresValidation() throws ValidationException {
+        Validation.movieGenresValidation(movieGenres, movieId);
+    }
+
+    @Benchmark
+    public void userNameValidation() throws ValidationException {
+        Validation.userNameValidation(userName);
+    }
+
+    @Benchmark
+    public void userIdValidation() throws ValidationException {
+        Validation.userIdValidation(userId);
+    }
+
+    @Benchmark
+    public void invalidUserIdValidation(Blackhole blackhole) {
+        try {
+            Validation.userIdValidation("1234X");
+        } catch (ValidationException e) {
+            blackhole.consume(e);
+        }
+    }
+}
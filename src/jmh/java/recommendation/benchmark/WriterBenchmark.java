@@ -0,0 +1,57 @@
+package recommendation.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import recommendation.engine.RecommendationSystem;
+import recommendation.log.Log;
+import recommendation.model.SingleRecommendation;
+import recommendation.writer.RecommendationWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterBenchmark {
+
+    @Param({"1000", "10000"})
+    public int catalogSize;
+
+    @Param({"1000", "10000"})
+    public int userCount;
+
+    @Param({"1", "3"})
+    public int genresPerMovie;
+
+    private List<SingleRecommendation> recommendations;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Log.setLevel(Log.Level.OFF);
+        BenchmarkData data = new BenchmarkData(catalogSize, userCount, genresPerMovie);
+        recommendations = new RecommendationSystem(data.users, data.movies)
+                .getSingleRecommendations();
+        file = Files.createTempFile("recommendations", ".txt");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void writeRecommendations() throws IOException {
+        try (RecommendationWriter writer = new RecommendationWriter(file.toString())) {
+            for (SingleRecommendation recommendation : recommendations) {
+                writer.write(recommendation);
+            }
+        }
+    }
+}
@@ -1,64 +1,516 @@
 package recommendation;
 
+import recommendation.engine.RecommendationCache;
 import recommendation.engine.RecommendationSystem;
+import recommendation.engine.Recommender;
+import recommendation.engine.RecommenderProvider;
+import recommendation.engine.Recommenders;
+import recommendation.log.Log;
 import recommendation.model.Movie;
-import recommendation.model.SingleRecommendation;
+import recommendation.model.MovieCatalog;
 import recommendation.model.User;
 import recommendation.parser.MovieParser;
+import recommendation.parser.ParallelUserParser;
+import recommendation.parser.ReadMode;
 import recommendation.parser.UserParser;
+import recommendation.parser.UserStorage;
+import recommendation.server.RecommendationServer;
+import recommendation.snapshot.SnapshotReader;
+import recommendation.snapshot.SnapshotSources;
+import recommendation.snapshot.SnapshotWriter;
+import recommendation.writer.RecommendationWriter;
 import recommendation.writer.Writer;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
+    static final String USAGE = "Usage: [--log-level=off|error|info|debug] [--verbose] [--quiet] [--top-k=N] "
+            + "[--engine=NAME] [--serve=PORT] [--snapshot=FILE] [--storage=heap|off-heap] "
+            + "[--read=buffered|mapped] [--neighbours=N] [--minhash-bands=N] [--minhash-rows=N] "
+            + "[--cache=N] [--cache-policy=lru|tiny-lfu] [usersFile moviesFile]";
+
+    // users files from this size on are parsed by ParallelUserParser
+    static final long PARALLEL_PARSE_BYTES = 32L << 20;
+
+    // a signature of bands * rows hashes per user
+    static final int MAX_MINHASH_BANDS = 1024;
+    static final int MAX_MINHASH_ROWS = 64;
+
+    // recommendations kept when serving a lazy engine and no --cache is given
+    static final int DEFAULT_CACHE_SIZE = 10_000;
+
+    private static final String SAMPLE_USERS = "samples/users.txt";
+    private static final String SAMPLE_MOVIES = "samples/movies.txt";
+
+    private MovieCatalog catalog;
+    private List<User> users;
+    private RecommendationServer server;
+
+    /**
+     * Run settings, filled by {@link #parse(String[])} from the command line or set one by one. Every
+     * setter checks its value and throws {@link IllegalArgumentException} when it is out of range.
+     */
+    public static final class Options {
+        String userFile;
+        String movieFile;
+        Log.Level logLevel;
+        int topK;
+        String snapshotFile;
+        String engine;
+        int servePort = -1;
+        UserStorage storage = UserStorage.HEAP;
+        ReadMode readMode = ReadMode.BUFFERED;
+        long parallelParseBytes = PARALLEL_PARSE_BYTES;
+        int neighbours;
+        int minHashBands;
+        int minHashRows;
+        int cacheSize;
+        RecommendationCache.Policy cachePolicy = RecommendationCache.Policy.LRU;
+
+        public Options(String userFile, String movieFile) {
+            if (userFile == null || movieFile == null) {
+                throw new IllegalArgumentException("File path cannot be null");
+            }
+            this.userFile = userFile;
+            this.movieFile = movieFile;
+        }
+
+        /**
+         * @param topK when positive, only the {@code topK} best ranked movies are recommended to each
+         *             user; 0 for the engine default
+         */
+        public Options topK(int topK) {
+            if (topK < 0) {
+                throw new IllegalArgumentException("topK cannot be negative");
+            }
+            this.topK = topK;
+            return this;
+        }
+
+        /**
+         * @param snapshotFile when not null, the catalog and users are loaded from this snapshot if both
+         *                     text files are unchanged since it was written, and otherwise parsed and
+         *                     saved to it for the next run
+         */
+        public Options snapshot(String snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+
+        /**
+         * @param engine name of the {@link RecommenderProvider} to use, when null {@code ranked} if topK
+         *               is positive and {@code genre} otherwise
+         */
+        public Options engine(String engine) {
+            if (engine != null && !Recommenders.names().contains(engine)) {
+                throw new IllegalArgumentException("Invalid value {" + engine + "} for --engine, expected one of "
+                        + Recommenders.names());
+            }
+            this.engine = engine;
+            return this;
+        }
+
+        /**
+         * @param servePort when not negative, the recommendations are served over HTTP on this port, see
+         *                  {@link RecommendationServer}, instead of written to the file; 0 picks a free port
+         */
+        public Options serve(int servePort) {
+            if (servePort > 65535) {
+                throw new IllegalArgumentException("servePort must be at most 65535");
+            }
+            this.servePort = servePort;
+            return this;
+        }
+
+        /**
+         * @param storage where the parsed or loaded users are kept, {@link UserStorage#OFF_HEAP} to hold
+         *                them in an {@link recommendation.model.OffHeapUserStore} that the engine reads in place
+         */
+        public Options storage(UserStorage storage) {
+            if (storage == null) {
+                throw new IllegalArgumentException("storage cannot be null");
+            }
+            this.storage = storage;
+            return this;
+        }
+
+        /**
+         * @param neighbours most similar users or movies kept by the {@code co-occurrence} and
+         *                   {@code minhash} engines, see {@link Recommenders#provider(String, int, int, int)}
+         */
+        public Options neighbours(int neighbours) {
+            if (neighbours < 1) {
+                throw new IllegalArgumentException("neighbours must be at least 1");
+            }
+            this.neighbours = neighbours;
+            return this;
+        }
+
+        /**
+         * @param bands LSH bands of the {@code minhash} engine, more find more neighbours
+         */
+        public Options minHashBands(int bands) {
+            if (bands < 1) {
+                throw new IllegalArgumentException("bands must be at least 1");
+            }
+            this.minHashBands = bands;
+            return this;
+        }
+
+        /**
+         * @param rows signature rows per band of the {@code minhash} engine, more keep only closer neighbours
+         */
+        public Options minHashRows(int rows) {
+            if (rows < 1) {
+                throw new IllegalArgumentException("rows must be at least 1");
+            }
+            this.minHashRows = rows;
+            return this;
+        }
+
+        /**
+         * @param cacheSize most recommendations kept by the {@link RecommendationCache} a server puts in
+         *                  front of a lazy engine; the other engines keep all of theirs already
+         */
+        public Options cache(int cacheSize, RecommendationCache.Policy cachePolicy) {
+            if (cacheSize < 1) {
+                throw new IllegalArgumentException("cacheSize must be at least 1");
+            }
+            if (cachePolicy == null) {
+                throw new IllegalArgumentException("cachePolicy cannot be null");
+            }
+            this.cacheSize = cacheSize;
+            this.cachePolicy = cachePolicy;
+            return this;
+        }
+
+        /**
+         * @param readMode how both text files are read, {@link ReadMode#MAPPED} to tokenize them straight
+         *                 from a memory mapping
+         */
+        public Options readMode(ReadMode readMode) {
+            if (readMode == null) {
+                throw new IllegalArgumentException("readMode cannot be null");
+            }
+            this.readMode = readMode;
+            return this;
+        }
+
+        Options parallelParseBytes(long parallelParseBytes) {
+            this.parallelParseBytes = parallelParseBytes;
+            return this;
+        }
+
+        /**
+         * @param logLevel applied by {@link #main(String[])}, null to keep the current level
+         */
+        public Options logLevel(Log.Level logLevel) {
+            this.logLevel = logLevel;
+            return this;
+        }
+
+        /**
+         * Reads the options described in {@link Main#main(String[])}; without the two file arguments
+         * the sample files are used.
+         *
+         * @throws IllegalArgumentException on an invalid option value
+         */
+        public static Options parse(String[] args) {
+            Options options = new Options(SAMPLE_USERS, SAMPLE_MOVIES);
+            List<String> files = new ArrayList<>();
+            for (String arg : args) {
+                if (arg.startsWith("--serve=")) {
+                    options.serve(intOption(arg, "--serve=", 0, 65535));
+                } else if (arg.startsWith("--engine=")) {
+                    options.engine(arg.substring("--engine=".length()));
+                } else if (arg.startsWith("--snapshot=")) {
+                    options.snapshot(arg.substring("--snapshot=".length()));
+                } else if (arg.startsWith("--storage=")) {
+                    options.storage(storageOption(arg.substring("--storage=".length())));
+                } else if (arg.startsWith("--neighbours=")) {
+                    options.neighbours(intOption(arg, "--neighbours=", 1, Integer.MAX_VALUE));
+                } else if (arg.startsWith("--minhash-bands=")) {
+                    options.minHashBands(intOption(arg, "--minhash-bands=", 1, MAX_MINHASH_BANDS));
+                } else if (arg.startsWith("--minhash-rows=")) {
+                    options.minHashRows(intOption(arg, "--minhash-rows=", 1, MAX_MINHASH_ROWS));
+                } else if (arg.startsWith("--cache=")) {
+                    options.cache(intOption(arg, "--cache=", 1, Integer.MAX_VALUE), options.cachePolicy);
+                } else if (arg.startsWith("--cache-policy=")) {
+                    options.cachePolicy = cachePolicyOption(arg.substring("--cache-policy=".length()));
+                } else if (arg.startsWith("--read=")) {
+                    options.readMode(readModeOption(arg.substring("--read=".length())));
+                } else if (arg.startsWith("--top-k=")) {
+                    options.topK(intOption(arg, "--top-k=", 1, Integer.MAX_VALUE));
+                } else if (arg.startsWith("--log-level=")) {
+                    options.logLevel(logLevelOption(arg.substring("--log-level=".length())));
+                } else if (arg.equals("--verbose")) {
+                    options.logLevel(Log.Level.DEBUG);
+                } else if (arg.equals("--quiet")) {
+                    options.logLevel(Log.Level.OFF);
+                } else {
+                    files.add(arg);
+                }
+            }
+            if (files.size() >= 2) {
+                options.userFile = files.get(0);
+                options.movieFile = files.get(1);
+            }
+            return options;
+        }
+    }
+
     public Main(String userFile, String movieFile) throws IOException {
+        this(new Options(userFile, movieFile));
+    }
+
+    /**
+     * @throws IllegalArgumentException when no engine has the name of {@link Options#engine(String)}
+     */
+    public Main(Options options) throws IOException {
+        RecommenderProvider provider = Recommenders.provider(options.engine != null ? options.engine
+                : options.topK > 0 ? "ranked" : "genre", options.neighbours, options.minHashBands, options.minHashRows);
         Writer writer = new Writer();
-        System.out.println("Movie Recommendation System starting...");
-        MovieParser movieParser = new MovieParser(movieFile);
+        Log.info(() -> "Movie Recommendation System starting...");
+
+        if (!(options.snapshotFile != null && loadSnapshot(options))) {
+            // taken before parsing, so that a file changed meanwhile makes the snapshot stale
+            SnapshotSources sources = options.snapshotFile != null ? sources(options) : null;
+            if (!parse(options, writer)) {
+                return;
+            }
+            if (sources != null) {
+                SnapshotWriter snapshot = new SnapshotWriter(options.snapshotFile, sources, catalog, users);
+                if (!snapshot.success()) {
+                    Log.error(() -> "Snapshot not saved: " + snapshot.getError());
+                }
+            }
+        }
+
+        Recommender recommender = provider.create(catalog, users, options.topK);
+        if (options.servePort >= 0) {
+            server = new RecommendationServer(cached(recommender, provider, options), options.servePort);
+            return;
+        }
+        // each recommendation goes to the file as the engine hands it over, none is collected here
+        long[] written = {0};
+        try (RecommendationWriter out = writer.openRecommendations()) {
+            recommender.forEachRecommendation(recommendation -> {
+                try {
+                    out.write(recommendation);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                written[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Log.info(() -> "Wrote " + written[0] + " recommendations with engine " + provider.name());
+    }
+
+    /**
+     * A lazy engine is always served through a {@link RecommendationCache}, of {@link #DEFAULT_CACHE_SIZE}
+     * recommendations unless another size is asked for: the engine's own memo would keep every user
+     * ever asked for.
+     *
+     * @return the engine behind the cache when it is lazy, the engine itself otherwise
+     */
+    private static Recommender cached(Recommender recommender, RecommenderProvider provider, Options options) {
+        if (!(recommender instanceof RecommendationSystem) || !((RecommendationSystem) recommender).isLazy()) {
+            if (options.cacheSize > 0) {
+                Log.info(() -> "Cache not used: engine " + provider.name() + " keeps every recommendation");
+            }
+            return recommender;
+        }
+        int size = options.cacheSize > 0 ? options.cacheSize : DEFAULT_CACHE_SIZE;
+        Log.info(() -> "Caching " + size + " recommendations, " + options.cachePolicy);
+        return new RecommendationCache((RecommendationSystem) recommender, size, null, options.cachePolicy);
+    }
+
+    /**
+     * @return the running server, or null when not serving or the files failed validation
+     */
+    public RecommendationServer getServer() {
+        return server;
+    }
+
+    private static SnapshotSources sources(Options options) {
+        try {
+            return SnapshotSources.of(options.movieFile, options.userFile);
+        } catch (IOException e) {
+            // the parsers report the missing file
+            Log.debug(() -> "Exception: " + e);
+            return null;
+        }
+    }
+
+    private boolean loadSnapshot(Options options) {
+        SnapshotReader snapshot = new SnapshotReader(options.snapshotFile, options.movieFile, options.userFile,
+                options.storage);
+        if (!snapshot.success()) {
+            Log.info(() -> "Snapshot not used: " + snapshot.getError());
+            return false;
+        }
+        catalog = snapshot.getCatalog();
+        users = snapshot.getUsers();
+        Log.info(() -> "Loaded " + catalog.size() + " movies and " + users.size() + " users from snapshot");
+        return true;
+    }
+
+    /**
+     * @return false when a file failed validation, the error being written out
+     */
+    private boolean parse(Options options, Writer writer) throws IOException {
+        MovieParser movieParser = new MovieParser(options.movieFile, options.readMode);
         List<Movie> movies = movieParser.getMovies();
 
         // Check for movie validation errors
         if(!movieParser.success()){
             String error = movieParser.getError();
-            System.out.println("Parsing error: " + error);
+            Log.error(() -> "Parsing error: " + error);
             writer.writeError(error);
-            return;
+            return false;
         }
 
-        System.out.println("Successfully loaded " + movies.size() + " movies");
+        Log.info(() -> "Successfully loaded " + movies.size() + " movies");
 
-        UserParser userParser = new UserParser(userFile, movies);
-        List<User> users = userParser.getUsers();
+        // one index over the catalog, shared by the user validation and the engine
+        catalog = new MovieCatalog(movies, movieParser.getGenres());
+        String userError;
+        if (parallelParse(options)) {
+            Log.info(() -> "Parsing users on " + ForkJoinPool.commonPool().getParallelism() + " threads");
+            ParallelUserParser userParser = new ParallelUserParser(options.userFile, catalog, ForkJoinPool.commonPool());
+            users = userParser.getUsers();
+            userError = userParser.getError();
+        } else {
+            UserParser userParser = new UserParser(options.userFile, catalog, options.readMode, options.storage);
+            users = userParser.getUsers();
+            userError = userParser.getError();
+        }
 
         // Check for user validation errors
-        if(!userParser.success()){
-            String error = userParser.getError();
-            System.out.println("Parsing Error: " + error);
+        if(userError != null){
+            String error = userError;
+            Log.error(() -> "Parsing Error: " + error);
             writer.writeError(error);
+            return false;
+        }
+        Log.info(() -> "Successfully loaded " + users.size() + " users");
+        return true;
+    }
+
+    /**
+     * A users file of {@link Options#parallelParseBytes} or more is parsed in chunks on the common pool,
+     * always memory-mapped, when its users are kept on the heap; the off-heap store is filled by one
+     * sequential parser.
+     */
+    private static boolean parallelParse(Options options) {
+        if (options.storage != UserStorage.HEAP) {
+            return false;
+        }
+        try {
+            return Files.size(Path.of(options.userFile)) >= options.parallelParseBytes;
+        } catch (IOException e) {
+            // the sequential parser reports the missing file
+            return false;
+        }
+    }
+
+    /**
+     * Usage: {@code [options] [usersFile moviesFile]}. Options:
+     * <ul>
+     *     <li>{@code --log-level=off|error|info|debug}, {@code info} by default</li>
+     *     <li>{@code --verbose} for {@code debug}, {@code --quiet} for {@code off}</li>
+     *     <li>{@code --top-k=N} to recommend only the N best ranked movies to each user</li>
+     *     <li>{@code --engine=NAME} to pick the engine among {@link Recommenders#names()}</li>
+     *     <li>{@code --serve=PORT} to keep running and serve the recommendations over HTTP</li>
+     *     <li>{@code --snapshot=FILE} to reuse the parsed catalog and users while the text files are unchanged</li>
+     *     <li>{@code --storage=heap|off-heap} to keep the users outside of the heap, {@code heap} by default</li>
+     *     <li>{@code --read=buffered|mapped} to read the text files line by line or from a memory mapping,
+     *     {@code buffered} by default</li>
+     *     <li>{@code --neighbours=N} for the similar users or movies kept by {@code co-occurrence} and
+     *     {@code minhash}, 20 by default</li>
+     *     <li>{@code --minhash-bands=N} and {@code --minhash-rows=N} for the LSH bands of {@code minhash}
+     *     and the rows per band, 16 and 4 by default</li>
+     *     <li>{@code --cache=N} and {@code --cache-policy=lru|tiny-lfu} for the {@link RecommendationCache} a
+     *     lazy engine is served through, 10000 recommendations and {@code lru} by default</li>
+     * </ul>
+     * An invalid option value is reported on the standard error with the usage, and nothing runs.
+     */
+    public static void main(String[] args) throws IOException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USAGE);
             return;
         }
-        System.out.println("Successfully loaded " + users.size() + " users");
+        if (options.logLevel != null) {
+            Log.setLevel(options.logLevel);
+        }
+        if (options.userFile.equals(SAMPLE_USERS) && options.movieFile.equals(SAMPLE_MOVIES)) {
+            Log.info(() -> "No command line arguments provided. Using default sample files.");
+        }
+        new Main(options);
+    }
 
-        RecommendationSystem recommender = new RecommendationSystem(users, movies);
-        List<SingleRecommendation> recommendations = recommender.getSingleRecommendations();
-        System.out.println("Generated " + recommendations.size() + " recommendations");
+    private static int intOption(String arg, String option, int min, int max) {
+        String value = arg.substring(option.length());
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= min && parsed <= max) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below with the expected range
+        }
+        throw new IllegalArgumentException("Invalid value {" + value + "} for " + option.substring(0, option.length() - 1)
+                + ", expected a number from " + min + " to " + max);
+    }
 
-        writer.writeRecommendations(recommendations);
-        System.out.println("Recommendations written to file successfully");
+    private static RecommendationCache.Policy cachePolicyOption(String value) {
+        if (value.equals("lru")) {
+            return RecommendationCache.Policy.LRU;
+        }
+        if (value.equals("tiny-lfu")) {
+            return RecommendationCache.Policy.TINY_LFU;
+        }
+        throw new IllegalArgumentException("Invalid value {" + value + "} for --cache-policy, expected lru or tiny-lfu");
     }
 
-    public static void main(String[] args) throws IOException {
-        String movieFile;
-        String userFile;
-        if (args.length >= 2) {
-            userFile = args[0];
-            movieFile = args[1];
-        } else {
-            movieFile = "samples/movies.txt";
-            userFile = "samples/users.txt";
-            System.out.println("No command line arguments provided. Using default sample files.");
+    private static ReadMode readModeOption(String value) {
+        if (value.equals("buffered")) {
+            return ReadMode.BUFFERED;
+        }
+        if (value.equals("mapped")) {
+            return ReadMode.MAPPED;
+        }
+        throw new IllegalArgumentException("Invalid value {" + value + "} for --read, expected buffered or mapped");
+    }
+
+    private static Log.Level logLevelOption(String value) {
+        try {
+            return Log.Level.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value {" + value + "} for --log-level, expected off, error, info or debug");
+        }
+    }
+
+    private static UserStorage storageOption(String value) {
+        if (value.equals("heap")) {
+            return UserStorage.HEAP;
+        }
+        if (value.equals("off-heap")) {
+            return UserStorage.OFF_HEAP;
         }
-        new Main(userFile, movieFile);
+        throw new IllegalArgumentException("Invalid value {" + value + "} for --storage, expected heap or off-heap");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,277 @@
+package recommendation.engine;
+
+import recommendation.log.Log;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.SingleRecommendation;
+import recommendation.model.User;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Item based collaborative filtering: two movies are similar when the same users watched them,
+ * scored by the cosine of their audiences, {@code both / sqrt(audience(a) * audience(b))}. Only the
+ * best {@code neighbours} of each movie are kept, as parallel arrays of positions and scores, and a
+ * user is recommended the {@code topK} unwatched movies with the highest summed similarity to their
+ * history. Genres play no part. Ties are broken by catalog order.
+ *
+ * <p>Movies are keyed by {@link MovieCatalog#idPosition}, so repeated ids count as one movie. The
+ * similarity table is built in parallel, one task per range of movies.
+ */
+public class CoOccurrenceRecommendationSystem implements Recommender {
+    // movies handed to one task while building the similarity table
+    private static final int MOVIES_PER_TASK = 64;
+
+    private final MovieCatalog catalog;
+    private final List<User> users;
+    private final int neighbours;
+    private final int topK;
+    private final List<SingleRecommendation> singleRecommendations;
+    // position of the first user with each id
+    private final Map<String, Integer> indexById;
+
+    // histories as distinct id positions, and the inverted index: users of every position
+    private final int[][] histories;
+    private final int[][] audiences;
+    // best neighbours of every position, by decreasing similarity
+    private final int[][] neighbourPositions;
+    private final float[][] neighbourScores;
+
+    public CoOccurrenceRecommendationSystem(MovieCatalog catalog, List<User> users, int neighbours, int topK) {
+        this(catalog, users, neighbours, topK, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the similarity build, null to build on the calling thread
+     */
+    public CoOccurrenceRecommendationSystem(MovieCatalog catalog, List<User> users, int neighbours, int topK,
+                                            ExecutorService executor) {
+        if (neighbours < 1) {
+            throw new IllegalArgumentException("neighbours must be at least 1");
+        }
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK must be at least 1");
+        }
+        this.catalog = catalog != null ? catalog : new MovieCatalog(null);
+        this.users = users != null ? users : new ArrayList<>();
+        this.neighbours = neighbours;
+        this.topK = topK;
+
+        this.histories = new int[this.users.size()][];
+        for (int u = 0; u < histories.length; u++) {
+            histories[u] = history(this.catalog, this.users.get(u));
+        }
+        this.audiences = invert(histories, this.catalog.size());
+
+        this.neighbourPositions = new int[this.catalog.size()][];
+        this.neighbourScores = new float[this.catalog.size()][];
+        if (executor == null) {
+            buildNeighbours(0, this.catalog.size());
+        } else {
+            buildNeighbours(executor);
+        }
+
+        this.singleRecommendations = new ArrayList<>(this.users.size());
+        float[] scores = new float[this.catalog.size()];
+        int[] touched = new int[this.catalog.size()];
+        for (int u = 0; u < histories.length; u++) {
+            singleRecommendations.add(new SingleRecommendation(this.users.get(u), recommend(histories[u], scores, touched)));
+        }
+        this.indexById = UserIndex.byUserId(singleRecommendations);
+        Log.debug(() -> "CoOccurrenceRecommendationSystem initialized");
+    }
+
+    /**
+     * @return the most similar movies, best first, or an empty list for an unknown id
+     */
+    public List<Movie> getNeighbours(String movieId) {
+        int position = catalog.positionOf(movieId);
+        List<Movie> movies = new ArrayList<>();
+        if (position >= 0) {
+            for (int neighbour : neighbourPositions[position]) {
+                movies.add(catalog.getMovie(neighbour));
+            }
+        }
+        return movies;
+    }
+
+    /**
+     * @return the cosine similarity of the two movies if either is a kept neighbour of the other, 0
+     * otherwise
+     */
+    public double similarity(String movieId, String otherMovieId) {
+        int position = catalog.positionOf(movieId);
+        int other = catalog.positionOf(otherMovieId);
+        if (position < 0 || other < 0) {
+            return 0;
+        }
+        for (int i = 0; i < neighbourPositions[position].length; i++) {
+            if (neighbourPositions[position][i] == other) {
+                return neighbourScores[position][i];
+            }
+        }
+        for (int i = 0; i < neighbourPositions[other].length; i++) {
+            if (neighbourPositions[other][i] == position) {
+                return neighbourScores[other][i];
+            }
+        }
+        return 0;
+    }
+
+    public int getNeighbourCount() {
+        return neighbours;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    @Override
+    public SingleRecommendation recommendFor(String userId) {
+        Integer index = indexById.get(userId);
+        return index != null ? singleRecommendations.get(index) : null;
+    }
+
+    @Override
+    public List<SingleRecommendation> getSingleRecommendations() {
+        if (Log.isEnabled(Log.Level.DEBUG)) {
+            this.singleRecommendations.forEach(singleRecommendation -> Log.debug(() ->
+                    "User: " + singleRecommendation.getUser() + "Recommended movies: " + singleRecommendation.getMovies()));
+        }
+        return singleRecommendations;
+    }
+
+    // distinct id positions of the watched movies, ids the catalog does not hold are skipped
+    static int[] history(MovieCatalog catalog, User user) {
+        IntBuffer positions = user.getMoviePositions(catalog);
+        int[] history = new int[positions.limit()];
+        int count = 0;
+        for (int i = 0; i < positions.limit(); i++) {
+            if (positions.get(i) >= 0) {
+                history[count++] = catalog.idPosition(positions.get(i));
+            }
+        }
+        return Arrays.stream(history, 0, count).distinct().toArray();
+    }
+
+    private static int[][] invert(int[][] histories, int movieCount) {
+        int[] sizes = new int[movieCount];
+        for (int[] history : histories) {
+            for (int position : history) {
+                sizes[position]++;
+            }
+        }
+        int[][] audiences = new int[movieCount][];
+        for (int position = 0; position < movieCount; position++) {
+            audiences[position] = new int[sizes[position]];
+            sizes[position] = 0;
+        }
+        for (int u = 0; u < histories.length; u++) {
+            for (int position : histories[u]) {
+                audiences[position][sizes[position]++] = u;
+            }
+        }
+        return audiences;
+    }
+
+    private void buildNeighbours(ExecutorService executor) {
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int from = 0; from < catalog.size(); from += MOVIES_PER_TASK) {
+            int start = from;
+            int end = Math.min(from + MOVIES_PER_TASK, catalog.size());
+            tasks.add(executor.submit(() -> buildNeighbours(start, end)));
+        }
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            tasks.forEach(task -> task.cancel(true));
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            tasks.forEach(task -> task.cancel(true));
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Fills the neighbours of the positions in [from, to). Co-occurrences are counted in a dense
+     * scratch array reset through the list of touched positions, each task having its own.
+     */
+    private void buildNeighbours(int from, int to) {
+        int[] counts = new int[catalog.size()];
+        int[] touched = new int[catalog.size()];
+        for (int position = from; position < to; position++) {
+            int touchedCount = 0;
+            for (int user : audiences[position]) {
+                for (int other : histories[user]) {
+                    if (other != position && counts[other]++ == 0) {
+                        touched[touchedCount++] = other;
+                    }
+                }
+            }
+
+            long[] ranked = new long[touchedCount];
+            for (int i = 0; i < touchedCount; i++) {
+                int other = touched[i];
+                float score = (float) (counts[other] / Math.sqrt((double) audiences[position].length * audiences[other].length));
+                ranked[i] = RankKeys.rankKey(score, other);
+                counts[other] = 0;
+            }
+            Arrays.sort(ranked);
+
+            int kept = Math.min(neighbours, ranked.length);
+            neighbourPositions[position] = new int[kept];
+            neighbourScores[position] = new float[kept];
+            for (int i = 0; i < kept; i++) {
+                long key = ranked[ranked.length - 1 - i];
+                neighbourPositions[position][i] = RankKeys.positionOf(key);
+                neighbourScores[position][i] = RankKeys.scoreOf(key);
+            }
+        }
+    }
+
+    // merges the neighbour lists of the watched movies into scores, then keeps the best topK
+    private List<Movie> recommend(int[] history, float[] scores, int[] touched) {
+        BitSet watched = new BitSet(catalog.size());
+        for (int position : history) {
+            watched.set(position);
+        }
+        int touchedCount = 0;
+        for (int position : history) {
+            for (int i = 0; i < neighbourPositions[position].length; i++) {
+                int neighbour = neighbourPositions[position][i];
+                if (watched.get(neighbour)) {
+                    continue;
+                }
+                if (scores[neighbour] == 0) {
+                    touched[touchedCount++] = neighbour;
+                }
+                scores[neighbour] += neighbourScores[position][i];
+            }
+        }
+
+        long[] ranked = new long[touchedCount];
+        for (int i = 0; i < touchedCount; i++) {
+            ranked[i] = RankKeys.rankKey(scores[touched[i]], touched[i]);
+            scores[touched[i]] = 0;
+        }
+        Arrays.sort(ranked);
+        int kept = Math.min(topK, ranked.length);
+        Movie[] movies = new Movie[kept];
+        for (int i = 0; i < kept; i++) {
+            movies[i] = catalog.getMovie(RankKeys.positionOf(ranked[ranked.length - 1 - i]));
+        }
+        return List.of(movies);
+    }
+}
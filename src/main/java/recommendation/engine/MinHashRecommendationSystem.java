@@ -0,0 +1,387 @@
+package recommendation.engine;
+
+import recommendation.log.Log;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.SingleRecommendation;
+import recommendation.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * User based collaborative filtering on approximate neighbours. Every user gets a MinHash signature
+ * of {@code bands * rows} values over the set of movies they watched, so that two signatures agree
+ * on a value with a probability equal to the Jaccard similarity of the two sets. The signatures are
+ * cut into {@code bands} bands of {@code rows} values and users sharing a whole band land in the same
+ * bucket: a pair of similarity {@code s} becomes a candidate with probability
+ * {@code 1 - (1 - s^rows)^bands}. More bands raise the recall, more rows cut the candidates to check.
+ *
+ * <p>Candidates are ranked by the share of agreeing signature values and the best {@code neighbours}
+ * kept. A user is recommended the {@code topK} movies they did not watch with the highest summed
+ * similarity of the neighbours who watched them. Ties are broken by catalog order, then user order.
+ * Movies are keyed by {@link MovieCatalog#idPosition}, so repeated ids count as one movie.
+ */
+public class MinHashRecommendationSystem implements Recommender {
+    // users handed to one task while signing and ranking
+    private static final int USERS_PER_TASK = 256;
+    // bucket-mates looked at per user, so that a crowded bucket does not turn quadratic
+    private static final int MAX_CANDIDATES = 1024;
+    // slots of the open-addressed set deduplicating the candidates of one user, a power of two at
+    // least twice MAX_CANDIDATES so that probe runs stay short
+    private static final int CANDIDATE_SLOTS = 2048;
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final MovieCatalog catalog;
+    private final List<User> users;
+    private final int bands;
+    private final int rows;
+    private final int neighbours;
+    private final int topK;
+    private final List<SingleRecommendation> singleRecommendations;
+    // position of the first user with each id
+    private final Map<String, Integer> indexById;
+
+    private final long[] hashSeeds;
+    // distinct id positions watched by every user, and their signatures, null for an empty history
+    private final int[][] histories;
+    private final int[][] signatures;
+    // per band, sorted keys of the band hash in the high half and the user in the low half
+    private final long[][] buckets;
+    // best neighbours of every user, by decreasing similarity
+    private final int[][] neighbourUsers;
+    private final float[][] neighbourScores;
+
+    public MinHashRecommendationSystem(MovieCatalog catalog, List<User> users, int bands, int rows, int neighbours, int topK) {
+        this(catalog, users, bands, rows, neighbours, topK, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the signatures and the neighbour search, null to run on the calling thread
+     */
+    public MinHashRecommendationSystem(MovieCatalog catalog, List<User> users, int bands, int rows, int neighbours, int topK,
+                                       ExecutorService executor) {
+        if (bands < 1) {
+            throw new IllegalArgumentException("bands must be at least 1");
+        }
+        if (rows < 1) {
+            throw new IllegalArgumentException("rows must be at least 1");
+        }
+        if (neighbours < 1) {
+            throw new IllegalArgumentException("neighbours must be at least 1");
+        }
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK must be at least 1");
+        }
+        this.catalog = catalog != null ? catalog : new MovieCatalog(null);
+        this.users = users != null ? users : new ArrayList<>();
+        this.bands = bands;
+        this.rows = rows;
+        this.neighbours = neighbours;
+        this.topK = topK;
+
+        SplittableRandom random = new SplittableRandom(SEED);
+        this.hashSeeds = new long[bands * rows];
+        for (int i = 0; i < hashSeeds.length; i++) {
+            hashSeeds[i] = random.nextLong();
+        }
+
+        this.histories = new int[this.users.size()][];
+        this.signatures = new int[this.users.size()][];
+        run(executor, this::sign);
+        this.buckets = new long[bands][];
+        for (int band = 0; band < bands; band++) {
+            buckets[band] = bucket(band);
+        }
+
+        this.neighbourUsers = new int[this.users.size()][];
+        this.neighbourScores = new float[this.users.size()][];
+        SingleRecommendation[] recommendations = new SingleRecommendation[this.users.size()];
+        run(executor, (from, to) -> rank(from, to, recommendations));
+        this.singleRecommendations = Arrays.asList(recommendations);
+        this.indexById = UserIndex.byUserId(singleRecommendations);
+        Log.debug(() -> "MinHashRecommendationSystem initialized");
+    }
+
+    /**
+     * @return the nearest users found, best first, or an empty list for an unknown id
+     */
+    public List<User> getNeighbours(String userId) {
+        int user = indexOf(userId);
+        List<User> found = new ArrayList<>();
+        if (user >= 0) {
+            for (int neighbour : neighbourUsers[user]) {
+                found.add(singleRecommendations.get(neighbour).getUser());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the estimated Jaccard similarity of the histories of the two users, the share of their
+     * signature values that agree, 0 if either is unknown or watched nothing
+     */
+    public double similarity(String userId, String otherUserId) {
+        int user = indexOf(userId);
+        int other = indexOf(otherUserId);
+        if (user < 0 || other < 0 || signatures[user] == null || signatures[other] == null) {
+            return 0;
+        }
+        return agreement(signatures[user], signatures[other]);
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getNeighbourCount() {
+        return neighbours;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    @Override
+    public SingleRecommendation recommendFor(String userId) {
+        int user = indexOf(userId);
+        return user >= 0 ? singleRecommendations.get(user) : null;
+    }
+
+    @Override
+    public List<SingleRecommendation> getSingleRecommendations() {
+        if (Log.isEnabled(Log.Level.DEBUG)) {
+            this.singleRecommendations.forEach(singleRecommendation -> Log.debug(() ->
+                    "User: " + singleRecommendation.getUser() + "Recommended movies: " + singleRecommendation.getMovies()));
+        }
+        return singleRecommendations;
+    }
+
+    private int indexOf(String userId) {
+        return indexById.getOrDefault(userId, -1);
+    }
+
+    private void sign(int from, int to) {
+        for (int u = from; u < to; u++) {
+            histories[u] = CoOccurrenceRecommendationSystem.history(catalog, users.get(u));
+            if (histories[u].length == 0) {
+                continue;
+            }
+            int[] signature = new int[hashSeeds.length];
+            Arrays.fill(signature, Integer.MAX_VALUE);
+            for (int position : histories[u]) {
+                for (int i = 0; i < signature.length; i++) {
+                    signature[i] = Math.min(signature[i], (int) (mix(position ^ hashSeeds[i]) >>> 32));
+                }
+            }
+            signatures[u] = signature;
+        }
+    }
+
+    private long[] bucket(int band) {
+        long[] keys = new long[users.size()];
+        int count = 0;
+        for (int u = 0; u < users.size(); u++) {
+            if (signatures[u] != null) {
+                keys[count++] = bandKey(band, u);
+            }
+        }
+        keys = Arrays.copyOf(keys, count);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private long bandKey(int band, int user) {
+        long hash = band;
+        for (int r = band * rows; r < (band + 1) * rows; r++) {
+            hash = mix(hash * 31 + signatures[user][r]);
+        }
+        return (hash & 0xFFFFFFFF00000000L) | user;
+    }
+
+    /**
+     * Finds the neighbours and the recommendations of the users in [from, to). Candidates are
+     * deduplicated in a small open-addressed set and scores are summed in a dense scratch array,
+     * both reset through the entries they received, each task having its own. The scratch space
+     * depends on the catalog and the candidate cap, not on the number of users.
+     */
+    private void rank(int from, int to, SingleRecommendation[] recommendations) {
+        Candidates candidates = new Candidates();
+        float[] scores = new float[catalog.size()];
+        int[] touched = new int[catalog.size()];
+        for (int u = from; u < to; u++) {
+            findNeighbours(u, candidates);
+            recommendations[u] = new SingleRecommendation(users.get(u), recommend(u, scores, touched));
+        }
+    }
+
+    private void findNeighbours(int user, Candidates candidates) {
+        if (signatures[user] == null) {
+            neighbourUsers[user] = new int[0];
+            neighbourScores[user] = new float[0];
+            return;
+        }
+        for (int band = 0; band < bands && !candidates.full(); band++) {
+            long[] keys = buckets[band];
+            int index = Arrays.binarySearch(keys, bandKey(band, user));
+            long bucket = keys[index] >>> 32;
+            for (int i = index - 1; i >= 0 && keys[i] >>> 32 == bucket && !candidates.full(); i--) {
+                candidates.add((int) keys[i]);
+            }
+            for (int i = index + 1; i < keys.length && keys[i] >>> 32 == bucket && !candidates.full(); i++) {
+                candidates.add((int) keys[i]);
+            }
+        }
+
+        long[] ranked = new long[candidates.count];
+        for (int i = 0; i < candidates.count; i++) {
+            int candidate = candidates.users[i];
+            ranked[i] = RankKeys.rankKey((float) agreement(signatures[user], signatures[candidate]), candidate);
+        }
+        candidates.clear();
+        Arrays.sort(ranked);
+        int kept = Math.min(neighbours, ranked.length);
+        neighbourUsers[user] = new int[kept];
+        neighbourScores[user] = new float[kept];
+        for (int i = 0; i < kept; i++) {
+            long key = ranked[ranked.length - 1 - i];
+            neighbourUsers[user][i] = RankKeys.positionOf(key);
+            neighbourScores[user][i] = RankKeys.scoreOf(key);
+        }
+    }
+
+    /**
+     * The distinct bucket-mates of one user, at most {@link #MAX_CANDIDATES}, in the order found.
+     * Membership goes through an open-addressed table with linear probing, emptied after every user
+     * through the slots it filled.
+     */
+    private static final class Candidates {
+        private static final int MASK = CANDIDATE_SLOTS - 1;
+
+        final int[] users = new int[MAX_CANDIDATES];
+        int count;
+        private final int[] table = new int[CANDIDATE_SLOTS];
+        private final int[] filled = new int[MAX_CANDIDATES];
+
+        Candidates() {
+            Arrays.fill(table, -1);
+        }
+
+        boolean full() {
+            return count == MAX_CANDIDATES;
+        }
+
+        void add(int user) {
+            int slot = (user * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(CANDIDATE_SLOTS));
+            while (table[slot] >= 0) {
+                if (table[slot] == user) {
+                    return;
+                }
+                slot = (slot + 1) & MASK;
+            }
+            table[slot] = user;
+            filled[count] = slot;
+            users[count++] = user;
+        }
+
+        void clear() {
+            for (int i = 0; i < count; i++) {
+                table[filled[i]] = -1;
+            }
+            count = 0;
+        }
+    }
+
+    // sums the similarity of the neighbours over the movies they watched, then keeps the best topK
+    private List<Movie> recommend(int user, float[] scores, int[] touched) {
+        BitSet watched = new BitSet(catalog.size());
+        for (int position : histories[user]) {
+            watched.set(position);
+        }
+        int touchedCount = 0;
+        for (int i = 0; i < neighbourUsers[user].length; i++) {
+            for (int position : histories[neighbourUsers[user][i]]) {
+                if (watched.get(position)) {
+                    continue;
+                }
+                if (scores[position] == 0) {
+                    touched[touchedCount++] = position;
+                }
+                scores[position] += neighbourScores[user][i];
+            }
+        }
+
+        long[] ranked = new long[touchedCount];
+        for (int i = 0; i < touchedCount; i++) {
+            ranked[i] = RankKeys.rankKey(scores[touched[i]], touched[i]);
+            scores[touched[i]] = 0;
+        }
+        Arrays.sort(ranked);
+        int kept = Math.min(topK, ranked.length);
+        Movie[] movies = new Movie[kept];
+        for (int i = 0; i < kept; i++) {
+            movies[i] = catalog.getMovie(RankKeys.positionOf(ranked[ranked.length - 1 - i]));
+        }
+        return List.of(movies);
+    }
+
+    private static double agreement(int[] signature, int[] other) {
+        int agreeing = 0;
+        for (int i = 0; i < signature.length; i++) {
+            if (signature[i] == other[i]) {
+                agreeing++;
+            }
+        }
+        return (double) agreeing / signature.length;
+    }
+
+    // the 64 bit finalizer of MurmurHash3
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    private void run(ExecutorService executor, RangeTask task) {
+        if (executor == null) {
+            task.run(0, users.size());
+            return;
+        }
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int from = 0; from < users.size(); from += USERS_PER_TASK) {
+            int start = from;
+            int end = Math.min(from + USERS_PER_TASK, users.size());
+            tasks.add(executor.submit(() -> task.run(start, end)));
+        }
+        try {
+            for (Future<?> future : tasks) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            tasks.forEach(future -> future.cancel(true));
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            tasks.forEach(future -> future.cancel(true));
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
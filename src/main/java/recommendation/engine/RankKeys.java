@@ -0,0 +1,23 @@
+package recommendation.engine;
+
+/**
+ * Packs a positive score and a catalog position in a long so that ascending longs mean increasing
+ * score, then decreasing position: after {@code Arrays.sort} the last keys are the best, the earliest
+ * in the catalog first on ties. The bits of a positive float order like the float itself.
+ */
+final class RankKeys {
+    private RankKeys() {
+    }
+
+    static long rankKey(float score, int position) {
+        return ((long) Float.floatToIntBits(score) << 32) | (~position & 0xFFFFFFFFL);
+    }
+
+    static int positionOf(long key) {
+        return ~(int) key;
+    }
+
+    static float scoreOf(long key) {
+        return Float.intBitsToFloat((int) (key >>> 32));
+    }
+}
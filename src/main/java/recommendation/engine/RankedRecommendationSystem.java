@@ -0,0 +1,129 @@
+package recommendation.engine;
+
+import recommendation.log.Log;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.SingleRecommendation;
+import recommendation.model.User;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Ranked variant of {@link RecommendationSystem}: the candidates are the same unwatched movies sharing a
+ * genre with the user's history, but each one is scored by the genres it shares, every genre weighted
+ * by the number of watched movies tagged with it, and only the best {@code topK} are kept. Selection
+ * goes through a heap bounded to {@code topK} entries, so memory and output are bounded by K instead
+ * of the catalog size. Ties are broken by catalog order.
+ */
+public class RankedRecommendationSystem implements Recommender {
+    private List<SingleRecommendation> singleRecommendations;
+    // position of the first user with each id
+    private final Map<String, Integer> indexById;
+    private MovieCatalog catalog;
+    private List<User> users;
+    private int topK;
+
+    // per candidate position, reset after every user through the touched list
+    private int[] scores;
+    private int[] touched;
+
+    public RankedRecommendationSystem(List<User> users, List<Movie> movies, int topK) {
+        this(new MovieCatalog(movies), users, topK);
+    }
+
+    public RankedRecommendationSystem(MovieCatalog catalog, List<User> users, int topK) {
+        if (topK < 1) {
+            throw new IllegalArgumentException("topK must be at least 1");
+        }
+        singleRecommendations = new ArrayList<>();
+        this.users = users != null ? users : new ArrayList<>();
+        this.catalog = catalog != null ? catalog : new MovieCatalog(null);
+        this.topK = topK;
+        this.scores = new int[this.catalog.size()];
+        this.touched = new int[this.catalog.size()];
+        this.users.forEach(user -> this.singleRecommendations.add(generateSingleRecommendation(user)));
+        this.indexById = UserIndex.byUserId(singleRecommendations);
+        Log.debug(() -> "RankedRecommendationSystem initialized");
+    }
+
+    private SingleRecommendation generateSingleRecommendation(User user) {
+        // weight of a genre code = number of watched movies tagged with it
+        int[] genreWeights = new int[catalog.getGenres().size()];
+        // watched movies are excluded by id, i.e. by the position of the first movie with that id
+        BitSet watched = new BitSet(catalog.size());
+        IntBuffer history = user.getMoviePositions(catalog);
+        for (int i = 0; i < history.limit(); i++) {
+            int position = history.get(i);
+            if (position >= 0 && !watched.get(position)) {
+                watched.set(position);
+                for (int code : catalog.genreCodes(position)) {
+                    genreWeights[code]++;
+                }
+            }
+        }
+
+        int touchedCount = 0;
+        for (int code = 0; code < genreWeights.length; code++) {
+            if (genreWeights[code] == 0) {
+                continue;
+            }
+            for (int position : catalog.positionsOfGenre(code)) {
+                if (scores[position] == 0) {
+                    touched[touchedCount++] = position;
+                }
+                scores[position] += genreWeights[code];
+            }
+        }
+
+        // the worst kept candidate sits on top: lowest score, then latest in the catalog
+        PriorityQueue<int[]> best = new PriorityQueue<>(topK + 1,
+                (a, b) -> a[1] != b[1] ? Integer.compare(a[1], b[1]) : Integer.compare(b[0], a[0]));
+        for (int i = 0; i < touchedCount; i++) {
+            int position = touched[i];
+            int score = scores[position];
+            scores[position] = 0;
+            if (watched.get(catalog.idPosition(position))) {
+                continue;
+            }
+            if (best.size() < topK) {
+                best.add(new int[]{position, score});
+            } else {
+                int[] worst = best.peek();
+                if (score > worst[1] || (score == worst[1] && position < worst[0])) {
+                    best.poll();
+                    best.add(new int[]{position, score});
+                }
+            }
+        }
+
+        Movie[] ranked = new Movie[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = catalog.getMovie(best.poll()[0]);
+        }
+        return new SingleRecommendation(user, List.of(ranked));
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    @Override
+    public SingleRecommendation recommendFor(String userId) {
+        Integer index = indexById.get(userId);
+        return index != null ? singleRecommendations.get(index) : null;
+    }
+
+    @Override
+    public List<SingleRecommendation> getSingleRecommendations() {
+        if (Log.isEnabled(Log.Level.DEBUG)) {
+            this.singleRecommendations.forEach(singleRecommendation -> Log.debug(() ->
+                    "User: " + singleRecommendation.getUser() + "Recommended movies: " + singleRecommendation.getMovies()));
+        }
+        return singleRecommendations;
+    }
+}
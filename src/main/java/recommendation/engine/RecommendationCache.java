@@ -0,0 +1,290 @@
+package recommendation.engine;
+
+import recommendation.log.Log;
+import recommendation.model.SingleRecommendation;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of per-user recommendations in front of a {@link RecommendationSystem}, meant for a
+ * {@link RecommendationSystem#lazy lazy} engine so that memory stays bounded by the cache size
+ * instead of the user count. Misses are computed with {@link RecommendationSystem#computeFor}.
+ * Entries are kept in least recently used order; with {@link Policy#TINY_LFU} a new entry only
+ * replaces the least recently used one when it was asked for more often, so a burst of one-off
+ * lookups cannot flush the hot users. Entries older than the optional time to live are recomputed,
+ * and every update of the engine drops the entries of the users it changed.
+ *
+ * <p>As a {@link Recommender} it answers {@link #recommendFor(String)} from the cache, which is how
+ * the server looks users up; the bulk results are the engine's own.
+ */
+public class RecommendationCache implements Recommender {
+    public enum Policy {
+        /** Evicts the least recently used entry. */
+        LRU,
+        /** LRU eviction with frequency based admission, estimated by a count-min sketch. */
+        TINY_LFU
+    }
+
+    private final RecommendationSystem engine;
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final Policy policy;
+    private final LongSupplier clock;
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<String, Entry> entries;
+    private final Consumer<String> invalidation = this::invalidate;
+    // held only to read or change the entries, never while the engine computes
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // bumped by every invalidation, a result computed across one is not stored
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param timeToLive null for entries that only leave through eviction or invalidation
+     */
+    public RecommendationCache(RecommendationSystem engine, int maximumSize, Duration timeToLive, Policy policy) {
+        this(engine, maximumSize, timeToLive, policy, System::nanoTime);
+    }
+
+    RecommendationCache(RecommendationSystem engine, int maximumSize, Duration timeToLive, Policy policy, LongSupplier clock) {
+        if (engine == null) {
+            throw new IllegalArgumentException("Engine cannot be null");
+        }
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be at least 1");
+        }
+        this.engine = engine;
+        this.maximumSize = maximumSize;
+        this.ttlNanos = timeToLive != null ? timeToLive.toNanos() : Long.MAX_VALUE;
+        this.policy = policy != null ? policy : Policy.LRU;
+        this.clock = clock;
+        this.sketch = this.policy == Policy.TINY_LFU ? new FrequencySketch(maximumSize) : null;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        engine.addChangeListener(invalidation);
+    }
+
+    /**
+     * @return the recommendation of the user, from the cache when present and fresh, or null if the
+     * engine has no user with this id
+     */
+    public SingleRecommendation get(String userId) {
+        long started;
+        lock.lock();
+        try {
+            if (sketch != null) {
+                sketch.increment(userId);
+            }
+            Entry entry = entries.get(userId);
+            if (entry != null && clock.getAsLong() - entry.created < ttlNanos) {
+                hits++;
+                return entry.recommendation;
+            }
+            if (entry != null) {
+                entries.remove(userId);
+                evictions++;
+            }
+            misses++;
+            started = generation;
+        } finally {
+            lock.unlock();
+        }
+
+        SingleRecommendation recommendation = engine.computeFor(userId);
+        if (recommendation == null) {
+            return null;
+        }
+        lock.lock();
+        try {
+            if (started == generation) {
+                store(userId, recommendation);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return recommendation;
+    }
+
+    /**
+     * Same as {@link #get(String)}.
+     */
+    @Override
+    public SingleRecommendation recommendFor(String userId) {
+        return get(userId);
+    }
+
+    /**
+     * @return the engine's recommendations, the cache is neither read nor filled
+     */
+    @Override
+    public List<SingleRecommendation> getSingleRecommendations() {
+        return engine.getSingleRecommendations();
+    }
+
+    @Override
+    public void forEachRecommendation(Consumer<? super SingleRecommendation> action) {
+        engine.forEachRecommendation(action);
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void invalidate(String userId) {
+        lock.lock();
+        try {
+            generation++;
+            entries.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops following the engine updates, the cache must not be used afterwards.
+     */
+    public void close() {
+        engine.removeChangeListener(invalidation);
+        invalidateAll();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        lock.lock();
+        try {
+            return hits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMisses() {
+        lock.lock();
+        try {
+            return misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the entries dropped for room or age, invalidations are not counted
+     */
+    public long getEvictions() {
+        lock.lock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(String userId, SingleRecommendation recommendation) {
+        if (!entries.containsKey(userId) && entries.size() >= maximumSize) {
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            Map.Entry<String, Entry> victim = eldest.next();
+            if (sketch != null && sketch.frequency(userId) <= sketch.frequency(victim.getKey())) {
+                Log.debug(() -> "Cache admission rejected: " + userId);
+                return;
+            }
+            eldest.remove();
+            evictions++;
+        }
+        entries.put(userId, new Entry(recommendation, clock.getAsLong()));
+    }
+
+    private static class Entry {
+        final SingleRecommendation recommendation;
+        final long created;
+
+        Entry(SingleRecommendation recommendation, long created) {
+            this.recommendation = recommendation;
+            this.created = created;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4 rows of counters saturating at 15. All counters are halved every
+     * {@code 10 * maximumSize} increments, so old popularity fades.
+     */
+    static class FrequencySketch {
+        private static final int ROWS = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, (int) Math.min(1 << 24, 4L * maximumSize) - 1) << 1);
+            this.counters = new byte[ROWS][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(maximumSize, 16);
+        }
+
+        void increment(String key) {
+            int hash = key.hashCode();
+            for (int row = 0; row < ROWS; row++) {
+                int index = index(hash, row);
+                if (counters[row][index] < MAX_COUNT) {
+                    counters[row][index]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                for (byte[] row : counters) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] >>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(String key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < ROWS; row++) {
+                frequency = Math.min(frequency, counters[row][index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
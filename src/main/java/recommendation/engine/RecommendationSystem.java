@@ -1,62 +1,557 @@
 package recommendation.engine;
 
+import recommendation.log.Log;
 import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
 import recommendation.model.SingleRecommendation;
 import recommendation.model.User;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Recommends to every user the unwatched movies sharing a genre with their history. Everything is
+ * computed in the constructor, or on demand by {@link #recommendFor} for an engine built with
+ * {@link #lazy}; afterwards {@link #addUser}, {@link #removeUser}, {@link #addWatchedMovie} and
+ * {@link #addMovie} keep the recommendations up to date by recomputing only the users they affect,
+ * the result being the same as a new engine over the changed input. Lookups share a read lock and
+ * run in parallel, updates take the write lock; a lazy engine takes it briefly to keep a result it
+ * computed. The list returned by {@link #getSingleRecommendations()} is live and must not be read
+ * while updates run.
+ *
+ * <p>The user list is read in place, not copied, so an off-heap list stays off the heap; it must
+ * not change while the engine is in use. The first update copies it, the caller's list is never
+ * modified.
+ */
+public class RecommendationSystem implements Recommender {
+    // users handed to one task in parallel mode, small enough to balance, large enough to amortize scheduling
+    private static final int USERS_PER_TASK = 256;
+    // distinct genre profiles whose candidates are kept, beyond it candidates are computed per user
+    private static final int MAX_PROFILES = 1 << 12;
 
-public class RecommendationSystem {
     private List<SingleRecommendation> singleRecommendations;
-    private List<Movie> movies;
+    private MovieCatalog catalog;
+    // the caller's list as a read-only view, copied on the first update that changes it
     private List<User> users;
+    private boolean ownsUsers;
+    // lazy mode: a recommendation is null until first asked for
+    private final boolean lazy;
+    // position of the first user with each id, built on the first lookup
+    private volatile Map<String, Integer> indexById;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+    // candidate positions per genre profile, before the watched movies of a user are taken out
+    private final Map<GenreProfile, int[]> candidatesByProfile = new ConcurrentHashMap<>();
 
     public RecommendationSystem(List<User> users, List<Movie> movies) {
+        this(new MovieCatalog(movies), users);
+    }
+
+    public RecommendationSystem(MovieCatalog catalog, List<User> users) {
+        this(catalog, users, null);
+    }
+
+    /**
+     * Spreads users across the executor, e.g. {@link ForkJoinPool#commonPool()}. The recommendations keep
+     * the input user order, so the output is identical to the sequential run. A null executor runs
+     * everything on the calling thread.
+     */
+    public RecommendationSystem(MovieCatalog catalog, List<User> users, ExecutorService executor) {
+        this(catalog, users, executor, false);
+    }
+
+    public RecommendationSystem(List<User> users, List<Movie> movies, ExecutorService executor) {
+        this(new MovieCatalog(movies), users, executor);
+    }
+
+    private RecommendationSystem(MovieCatalog catalog, List<User> users, ExecutorService executor, boolean lazy) {
         singleRecommendations = new ArrayList<>();
-        this.users = users != null ? users : new ArrayList<>();
-        this.movies = movies != null ? movies : new ArrayList<>();
-        generateRecommendations();
-        System.out.println("RecommendationSystem initialized");
+        // not copied: a copy of an off-heap list would decode every user onto the heap
+        this.users = users != null ? Collections.unmodifiableList(users) : List.of();
+        this.catalog = catalog != null ? catalog : new MovieCatalog(null);
+        this.lazy = lazy;
+        if (lazy) {
+            singleRecommendations.addAll(Collections.nCopies(this.users.size(), null));
+        } else if (executor == null) {
+            generateRecommendations();
+        } else {
+            generateRecommendations(executor);
+        }
+        Log.debug(() -> "RecommendationSystem initialized");
+    }
+
+    /**
+     * Lazy engine: building it reads no user, each recommendation is computed the first time
+     * {@link #recommendFor} or {@link #getSingleRecommendations()} needs it and then kept. Updates
+     * only forget the recommendations they affect. The output is the same as the eager engine's.
+     * Nothing bounds what is kept, so a long running caller looks users up through a
+     * {@link RecommendationCache}, which computes them with {@link #computeFor} and keeps a bounded number.
+     */
+    public static RecommendationSystem lazy(MovieCatalog catalog, List<User> users) {
+        return new RecommendationSystem(catalog, users, null, true);
+    }
+
+    // the user list the updates can change, copied from the caller's list the first time
+    private List<User> mutableUsers() {
+        if (!ownsUsers) {
+            users = new ArrayList<>(users);
+            ownsUsers = true;
+        }
+        return users;
     }
 
     private void generateRecommendations() {
-        this.users.forEach(user->{
-            List<String> userGenres = new ArrayList<>();
-            List<String> userMovies = user.getMovieIds();
-            userMovies.forEach(movieId->{
-                this.movies.forEach(movie->{
-                    if(movieId.equals(movie.getMovieId())){
-                        List<String> movieGenres = movie.getMovieGenres();
-                        userGenres.addAll(movieGenres);
-                    }
-                });
-            });
-            this.singleRecommendations.add(generateSingleRecommendation(user, userGenres));
-        });
-        System.out.println("Generating recommendations...");
-    }
-
-    private SingleRecommendation generateSingleRecommendation(User user, List<String> userGenres){
-        List<Movie> userMovies = new ArrayList<>();
-        userGenres.forEach(genre->{
-            this.movies.forEach(movie->{
-                if(movie.getMovieGenres().contains(genre) && !userMovies.contains(movie) && !user.getMovieIds().contains(movie.getMovieId())){
-                    userMovies.add(movie);
-                }
-            });
-        });
-        SingleRecommendation recommendation = new SingleRecommendation(user, userMovies);
+        this.users.forEach(user -> this.singleRecommendations.add(generateSingleRecommendation(user)));
+        Log.debug(() -> "Generating recommendations...");
+    }
+
+    private void generateRecommendations(ExecutorService executor) {
+        // one task per contiguous slice of users, joined in submission order to keep the user order
+        List<Future<List<SingleRecommendation>>> tasks = new ArrayList<>();
+        for (int from = 0; from < this.users.size(); from += USERS_PER_TASK) {
+            List<User> slice = this.users.subList(from, Math.min(from + USERS_PER_TASK, this.users.size()));
+            tasks.add(executor.submit(() -> {
+                List<SingleRecommendation> recommendations = new ArrayList<>(slice.size());
+                slice.forEach(user -> recommendations.add(generateSingleRecommendation(user)));
+                return recommendations;
+            }));
+        }
+        try {
+            for (Future<List<SingleRecommendation>> task : tasks) {
+                this.singleRecommendations.addAll(task.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            tasks.forEach(task -> task.cancel(true));
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            tasks.forEach(task -> task.cancel(true));
+            throw new RuntimeException(e.getCause());
+        }
+        Log.debug(() -> "Generating recommendations...");
+    }
+
+    /**
+     * @return the recommendation of the first user with this id, computed now if the engine is lazy
+     * and it was never asked for, or null if no user has this id
+     */
+    @Override
+    public SingleRecommendation recommendFor(String userId) {
+        buildIndex();
+        User user;
+        SingleRecommendation recommendation;
+        lock.readLock().lock();
+        try {
+            int index = indexOf(userId);
+            if (index < 0) {
+                return null;
+            }
+            recommendation = singleRecommendations.get(index);
+            if (recommendation != null) {
+                return recommendation;
+            }
+            user = users.get(index);
+            recommendation = generateSingleRecommendation(user);
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            // kept unless an update changed the user meanwhile
+            int index = indexOf(userId);
+            if (index >= 0 && users.get(index) == user && singleRecommendations.get(index) == null) {
+                singleRecommendations.set(index, recommendation);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return recommendation;
+    }
+
+    /**
+     * Computes the recommendation of the first user with this id without keeping it, for callers that
+     * keep results themselves such as {@link RecommendationCache}.
+     * @return null if no user has this id
+     */
+    public SingleRecommendation computeFor(String userId) {
+        buildIndex();
+        lock.readLock().lock();
+        try {
+            int index = indexOf(userId);
+            if (index < 0) {
+                return null;
+            }
+            SingleRecommendation recommendation = singleRecommendations.get(index);
+            return recommendation != null ? recommendation : generateSingleRecommendation(users.get(index));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param listener called, within the update, with the id of every user whose recommendation an
+     *                 update changed, added or removed
+     */
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Consumer<String> listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Recommends to a new user, appended after the existing ones.
+     * @return the new recommendation, or null for a lazy engine, which computes it when first asked
+     */
+    public SingleRecommendation addUser(User user) {
+        lock.writeLock().lock();
+        try {
+            SingleRecommendation recommendation = lazy ? null : generateSingleRecommendation(user);
+            mutableUsers().add(user);
+            singleRecommendations.add(recommendation);
+            if (indexById != null) {
+                indexById.putIfAbsent(user.getUserId(), users.size() - 1);
+            }
+            changed(user.getUserId());
+            return recommendation;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the first user with this id and its recommendation, no other user is affected.
+     * @return false if no user has this id
+     */
+    public boolean removeUser(String userId) {
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(userId);
+            if (index < 0) {
+                return false;
+            }
+            mutableUsers().remove(index);
+            singleRecommendations.remove(index);
+            // later users moved down, and another user may now be the first with this id
+            indexById = index();
+            changed(userId);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a movie to the history of the first user with this id, the user being replaced by one
+     * with the longer history. Only this user's recommendation is recomputed, or forgotten by a lazy
+     * engine.
+     * @return the user's recommendation, or null for a lazy engine, which computes it when next asked
+     * @throws IllegalArgumentException if the user or the movie does not exist
+     */
+    public SingleRecommendation addWatchedMovie(String userId, String movieId) {
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(userId);
+            if (index < 0) {
+                throw new IllegalArgumentException("User Id {" + userId + "} does not exist");
+            }
+            int position = catalog.positionOf(movieId);
+            if (position < 0) {
+                throw new IllegalArgumentException("Movie Id {" + movieId + "} does not exist");
+            }
+            User user = users.get(index);
+            IntBuffer history = user.getMoviePositions(catalog);
+            boolean compact = true;
+            for (int i = 0; i < history.limit(); i++) {
+                if (history.get(i) == position) {
+                    return singleRecommendations.get(index);
+                }
+                compact &= history.get(i) >= 0;
+            }
+
+            User updated;
+            if (compact) {
+                int[] positions = new int[history.limit() + 1];
+                history.get(0, positions, 0, history.limit());
+                positions[history.limit()] = position;
+                updated = new User(user.getUserName(), user.getUserId(), catalog, positions);
+            } else {
+                // ids unknown to the catalog cannot be held as positions, keep the ids
+                List<String> movieIds = new ArrayList<>(user.getMovieIds());
+                movieIds.add(movieId);
+                updated = new User(user.getUserName(), user.getUserId(), movieIds);
+            }
+            SingleRecommendation recommendation = lazy ? null : generateSingleRecommendation(updated);
+            mutableUsers().set(index, updated);
+            singleRecommendations.set(index, recommendation);
+            changed(userId);
+            return recommendation;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a movie to the catalog, see {@link MovieCatalog#withMovie}. Only the users whose
+     * history, read on the extended catalog, shares a genre with the movie are recomputed; the
+     * others cannot be recommended it. A lazy engine only forgets the affected recommendations, they
+     * are computed again when next asked for.
+     * @return the number of recomputed, or for a lazy engine forgotten, recommendations
+     */
+    public int addMovie(Movie movie) {
+        lock.writeLock().lock();
+        try {
+            catalog = catalog.withMovie(movie);
+            candidatesByProfile.clear();
+            int position = catalog.size() - 1;
+            long[] profile = new long[catalog.genreWords()];
+            int[] userGenres = new int[catalog.getGenres().size()];
+            BitSet watched = new BitSet(catalog.size());
+            int updated = 0;
+            for (int index = 0; index < users.size(); index++) {
+                // nothing to forget, unless a listener keeps the recommendation elsewhere
+                if (lazy && singleRecommendations.get(index) == null && changeListeners.isEmpty()) {
+                    continue;
+                }
+                Arrays.fill(profile, 0);
+                watched.clear();
+                genreProfile(users.get(index), profile, userGenres, watched);
+                if (catalog.hasAnyGenre(position, profile)) {
+                    singleRecommendations.set(index, lazy ? null : generateSingleRecommendation(users.get(index)));
+                    changed(users.get(index).getUserId());
+                    updated++;
+                }
+            }
+            return updated;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void changed(String userId) {
+        changeListeners.forEach(listener -> listener.accept(userId));
+    }
+
+    // under the read lock the index is already built, see buildIndex()
+    private int indexOf(String userId) {
+        if (indexById == null) {
+            indexById = index();
+        }
+        return indexById.getOrDefault(userId, -1);
+    }
+
+    // the first lookup reads every user id once, under the write lock; the index is then kept up to date
+    private void buildIndex() {
+        if (indexById == null) {
+            lock.writeLock().lock();
+            try {
+                if (indexById == null) {
+                    indexById = index();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private Map<String, Integer> index() {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            index.putIfAbsent(users.get(i).getUserId(), i);
+        }
+        return index;
+    }
+
+    private SingleRecommendation recommendationAt(int index) {
+        SingleRecommendation recommendation = singleRecommendations.get(index);
+        if (recommendation == null) {
+            recommendation = generateSingleRecommendation(users.get(index));
+            singleRecommendations.set(index, recommendation);
+        }
         return recommendation;
     }
 
+    private SingleRecommendation generateSingleRecommendation(User user) {
+        long[] profile = new long[catalog.genreWords()];
+        int[] userGenres = new int[catalog.getGenres().size()];
+        BitSet watched = new BitSet(catalog.size());
+        int userGenreCount = genreProfile(user, profile, userGenres, watched);
+
+        List<Movie> userMovies = new ArrayList<>();
+        for (int position : candidates(userGenres, userGenreCount)) {
+            if (!watched.get(catalog.idPosition(position))) {
+                userMovies.add(catalog.getMovie(position));
+            }
+        }
+        return new SingleRecommendation(user, userMovies);
+    }
+
+    /**
+     * @return the movies sharing a genre with the profile, in output order, shared by all users with
+     * the same genres met in the same order
+     */
+    private int[] candidates(int[] userGenres, int userGenreCount) {
+        GenreProfile key = new GenreProfile(Arrays.copyOf(userGenres, userGenreCount));
+        int[] candidates = candidatesByProfile.get(key);
+        if (candidates == null) {
+            candidates = computeCandidates(key.codes);
+            if (candidatesByProfile.size() < MAX_PROFILES) {
+                candidatesByProfile.putIfAbsent(key, candidates);
+            }
+        }
+        return candidates;
+    }
+
+    private int[] computeCandidates(int[] userGenres) {
+        // a movie is listed under the first of the user's genres it carries, so it is skipped for
+        // every later genre when it shares one of the earlier ones
+        int[] candidates = new int[catalog.size()];
+        int count = 0;
+        long[] earlier = new long[catalog.genreWords()];
+        for (int code : userGenres) {
+            for (int position : catalog.positionsOfGenre(code)) {
+                if (!catalog.hasAnyGenre(position, earlier)) {
+                    candidates[count++] = position;
+                }
+            }
+            earlier[code >>> 6] |= 1L << code;
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Reads the user's history: sets the genre mask of every watched movie in {@code profile}, lists
+     * the genre codes in {@code userGenres} in the order they are first met, which drives the output
+     * order, and marks the watched positions. Watched movies are excluded by id, i.e. by the position
+     * of the first movie with that id.
+     * @return the number of genre codes in {@code userGenres}
+     */
+    private int genreProfile(User user, long[] profile, int[] userGenres, BitSet watched) {
+        int userGenreCount = 0;
+        IntBuffer history = user.getMoviePositions(catalog);
+        for (int i = 0; i < history.limit(); i++) {
+            int position = history.get(i);
+            if (position < 0) {
+                continue;
+            }
+            watched.set(position);
+            for (int code : catalog.genreCodes(position)) {
+                long bit = 1L << code;
+                if ((profile[code >>> 6] & bit) == 0) {
+                    profile[code >>> 6] |= bit;
+                    userGenres[userGenreCount++] = code;
+                }
+            }
+        }
+        return userGenreCount;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @return the number of genre profiles whose candidates are kept
+     */
+    int memoizedProfiles() {
+        return candidatesByProfile.size();
+    }
+
+    /**
+     * @return the number of recommendations computed and kept so far
+     */
+    int computedUsers() {
+        return (int) singleRecommendations.stream().filter(Objects::nonNull).count();
+    }
+
+    public MovieCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * @return the recommendations of all users in user order, the missing ones of a lazy engine being
+     * computed first
+     */
+    @Override
     public List<SingleRecommendation> getSingleRecommendations() {
-        this.singleRecommendations.forEach(singleRecommendation -> {
-            System.out.print("User: " + singleRecommendation.getUser());
-            System.out.println("Recommended movies: " + singleRecommendation.getMovies());
-        });
+        if (lazy) {
+            lock.writeLock().lock();
+            try {
+                for (int index = 0; index < users.size(); index++) {
+                    recommendationAt(index);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (Log.isEnabled(Log.Level.DEBUG)) {
+            this.singleRecommendations.forEach(singleRecommendation -> Log.debug(() ->
+                    "User: " + singleRecommendation.getUser() + "Recommended movies: " + singleRecommendation.getMovies()));
+        }
         return singleRecommendations;
     }
-}
\ No newline at end of file
+
+    /**
+     * A lazy engine computes the missing recommendations one at a time and hands them over without
+     * keeping them; the kept ones are handed as they are. The read lock is taken for each user and
+     * released before the action runs, so the action may call back into the engine.
+     */
+    @Override
+    public void forEachRecommendation(Consumer<? super SingleRecommendation> action) {
+        for (int index = 0; ; index++) {
+            SingleRecommendation recommendation;
+            lock.readLock().lock();
+            try {
+                if (index >= users.size()) {
+                    return;
+                }
+                recommendation = singleRecommendations.get(index);
+                if (recommendation == null) {
+                    recommendation = generateSingleRecommendation(users.get(index));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            action.accept(recommendation);
+        }
+    }
+
+    /**
+     * Genre codes in the order they are first met in a history, the key of the memoized candidates.
+     */
+    private static final class GenreProfile {
+        private final int[] codes;
+        private final int hash;
+
+        GenreProfile(int[] codes) {
+            this.codes = codes;
+            this.hash = Arrays.hashCode(codes);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof GenreProfile && Arrays.equals(codes, ((GenreProfile) other).codes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
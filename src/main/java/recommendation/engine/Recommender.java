@@ -0,0 +1,44 @@
+package recommendation.engine;
+
+import recommendation.model.SingleRecommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Common view of the recommendation engines, so callers can switch between them. An engine does its
+ * work once, when built, and is then only asked for results; see {@link RecommenderProvider}.
+ */
+public interface Recommender {
+    /**
+     * @return the recommendations of all users, in user order
+     */
+    List<SingleRecommendation> getSingleRecommendations();
+
+    /**
+     * Hands every recommendation to the action, in user order. An engine computing recommendations
+     * on demand does so one at a time without keeping them, so a caller writing them out as they come
+     * needs memory for one user, not for all.
+     */
+    default void forEachRecommendation(Consumer<? super SingleRecommendation> action) {
+        getSingleRecommendations().forEach(action);
+    }
+
+    /**
+     * @return the recommendation of the first user with this id, or null if no user has this id
+     */
+    SingleRecommendation recommendFor(String userId);
+
+    /**
+     * @return the recommendations of the users with these ids, in the same order, null for an
+     * unknown id
+     */
+    default List<SingleRecommendation> recommendFor(List<String> userIds) {
+        List<SingleRecommendation> recommendations = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            recommendations.add(recommendFor(userId));
+        }
+        return recommendations;
+    }
+}
@@ -0,0 +1,25 @@
+package recommendation.engine;
+
+import recommendation.model.MovieCatalog;
+import recommendation.model.User;
+
+import java.util.List;
+
+/**
+ * Builds one kind of {@link Recommender}. Implementations are found with
+ * {@link java.util.ServiceLoader}, listed in {@code META-INF/services/recommendation.engine.RecommenderProvider},
+ * and looked up by name through {@link Recommenders}. They need a public no-argument constructor.
+ */
+public interface RecommenderProvider {
+    /**
+     * @return the name the engine is selected by, unique among the providers
+     */
+    String name();
+
+    /**
+     * Builds the engine over validated users. The engine owns the lists from then on.
+     *
+     * @param topK when positive, the most movies recommended to each user, otherwise the engine default
+     */
+    Recommender create(MovieCatalog catalog, List<User> users, int topK);
+}
@@ -0,0 +1,187 @@
+package recommendation.engine;
+
+import recommendation.model.MovieCatalog;
+import recommendation.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Lookup of the {@link RecommenderProvider}s on the class path, and the providers of the engines of
+ * this package.
+ */
+public final class Recommenders {
+    // results per user of the engines that always rank, when no topK is given
+    static final int DEFAULT_TOP_K = 10;
+    static final int DEFAULT_NEIGHBOURS = 20;
+
+    private Recommenders() {
+    }
+
+    /**
+     * @return the names of the available engines, in class path order
+     */
+    public static List<String> names() {
+        List<String> names = new ArrayList<>();
+        ServiceLoader.load(RecommenderProvider.class).forEach(provider -> names.add(provider.name()));
+        return names;
+    }
+
+    /**
+     * @throws IllegalArgumentException when no provider has this name
+     */
+    public static RecommenderProvider provider(String name) {
+        for (RecommenderProvider provider : ServiceLoader.load(RecommenderProvider.class)) {
+            if (provider.name().equals(name)) {
+                return provider;
+            }
+        }
+        throw new IllegalArgumentException("Engine {" + name + "} does not exist, available: " + names());
+    }
+
+    /**
+     * The provider of this name, the {@code co-occurrence} and {@code minhash} ones set up with the
+     * given neighbour search in place of their defaults.
+     *
+     * @param neighbours most similar users or movies kept per user or movie, 0 for the default
+     * @param bands      LSH bands of the {@code minhash} signatures, 0 for the default; more bands find
+     *                   more neighbours (recall), at the cost of more candidates to compare
+     * @param rows       signature rows per band, 0 for the default; more rows keep only closer
+     *                   neighbours in a bucket (precision)
+     * @throws IllegalArgumentException when no provider has this name or a value is negative
+     */
+    public static RecommenderProvider provider(String name, int neighbours, int bands, int rows) {
+        if (neighbours < 0 || bands < 0 || rows < 0) {
+            throw new IllegalArgumentException("neighbours, bands and rows cannot be negative");
+        }
+        RecommenderProvider provider = provider(name);
+        if (provider instanceof CoOccurrence) {
+            return new CoOccurrence(orDefault(neighbours, DEFAULT_NEIGHBOURS));
+        }
+        if (provider instanceof MinHash) {
+            return new MinHash(orDefault(bands, MinHash.BANDS), orDefault(rows, MinHash.ROWS),
+                    orDefault(neighbours, DEFAULT_NEIGHBOURS));
+        }
+        return provider;
+    }
+
+    private static int orDefault(int value, int defaultValue) {
+        return value > 0 ? value : defaultValue;
+    }
+
+    private static int topKOrDefault(int topK) {
+        return topK > 0 ? topK : DEFAULT_TOP_K;
+    }
+
+    /**
+     * Every movie of the genres the user watched, see {@link RecommendationSystem}; topK is ignored.
+     * The engine is {@link RecommendationSystem#lazy lazy}, so that streaming the recommendations
+     * keeps none of them and a server computes a user when first asked.
+     */
+    public static class Genre implements RecommenderProvider {
+        @Override
+        public String name() {
+            return "genre";
+        }
+
+        @Override
+        public Recommender create(MovieCatalog catalog, List<User> users, int topK) {
+            return RecommendationSystem.lazy(catalog, users);
+        }
+    }
+
+    /** Same output as {@code genre}, users spread over {@link ForkJoinPool#commonPool()}; topK is ignored. */
+    public static class GenreParallel implements RecommenderProvider {
+        @Override
+        public String name() {
+            return "genre-parallel";
+        }
+
+        @Override
+        public Recommender create(MovieCatalog catalog, List<User> users, int topK) {
+            return new RecommendationSystem(catalog, users, ForkJoinPool.commonPool());
+        }
+    }
+
+    /** The best movies by genre overlap, see {@link RankedRecommendationSystem}. */
+    public static class Ranked implements RecommenderProvider {
+        @Override
+        public String name() {
+            return "ranked";
+        }
+
+        @Override
+        public Recommender create(MovieCatalog catalog, List<User> users, int topK) {
+            return new RankedRecommendationSystem(catalog, users, topKOrDefault(topK));
+        }
+    }
+
+    /** Item based, see {@link CoOccurrenceRecommendationSystem}. */
+    public static class CoOccurrence implements RecommenderProvider {
+        private final int neighbours;
+
+        public CoOccurrence() {
+            this(DEFAULT_NEIGHBOURS);
+        }
+
+        /**
+         * @param neighbours most similar movies kept per movie
+         */
+        public CoOccurrence(int neighbours) {
+            if (neighbours < 1) {
+                throw new IllegalArgumentException("neighbours must be at least 1");
+            }
+            this.neighbours = neighbours;
+        }
+
+        @Override
+        public String name() {
+            return "co-occurrence";
+        }
+
+        @Override
+        public Recommender create(MovieCatalog catalog, List<User> users, int topK) {
+            return new CoOccurrenceRecommendationSystem(catalog, users, neighbours, topKOrDefault(topK));
+        }
+    }
+
+    /** User based on approximate neighbours, see {@link MinHashRecommendationSystem}. */
+    public static class MinHash implements RecommenderProvider {
+        static final int BANDS = 16;
+        static final int ROWS = 4;
+
+        private final int bands;
+        private final int rows;
+        private final int neighbours;
+
+        public MinHash() {
+            this(BANDS, ROWS, DEFAULT_NEIGHBOURS);
+        }
+
+        /**
+         * @param bands      LSH bands, see {@link MinHashRecommendationSystem}
+         * @param rows       signature rows per band
+         * @param neighbours most similar users kept per user
+         */
+        public MinHash(int bands, int rows, int neighbours) {
+            if (bands < 1 || rows < 1 || neighbours < 1) {
+                throw new IllegalArgumentException("bands, rows and neighbours must be at least 1");
+            }
+            this.bands = bands;
+            this.rows = rows;
+            this.neighbours = neighbours;
+        }
+
+        @Override
+        public String name() {
+            return "minhash";
+        }
+
+        @Override
+        public Recommender create(MovieCatalog catalog, List<User> users, int topK) {
+            return new MinHashRecommendationSystem(catalog, users, bands, rows, neighbours, topKOrDefault(topK));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package recommendation.engine;
+
+import recommendation.model.SingleRecommendation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Id lookup of the engines that compute every recommendation up front.
+ */
+final class UserIndex {
+    private UserIndex() {
+    }
+
+    /**
+     * @return the position of the first recommendation of every user id, so that a lookup agrees
+     * with a scan of the list
+     */
+    static Map<String, Integer> byUserId(List<SingleRecommendation> recommendations) {
+        Map<String, Integer> index = new HashMap<>(recommendations.size() * 4 / 3 + 1);
+        for (int i = 0; i < recommendations.size(); i++) {
+            index.putIfAbsent(recommendations.get(i).getUser().getUserId(), i);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,469 @@
+package recommendation.generator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Writes synthetic movies and users files in the format read by {@code MovieParser} and
+ * {@code UserParser}, for scale testing. The same seed and settings always produce the same files.
+ *
+ * <p>Every generated record is valid unless an error is injected with {@link #injectError}: titles are
+ * capitalized words, movie ids are the title initials followed by a unique three digit number (which
+ * caps a catalog at 1000 movies), user ids are eight digits and a letter. Genres are drawn with a
+ * configurable skew and watched movies follow a uniform or Zipf popularity over the catalog. Users
+ * are streamed to the file, so the user count is only bounded by disk space.</p>
+ */
+public class DatasetGenerator {
+    public static final int MAX_MOVIES = 1000;
+
+    static final String USAGE = "Usage: DatasetGenerator <outputDirectory> [--seed=N] [--movies=N] [--users=N] "
+            + "[--genres-per-movie=MIN-MAX] [--genre-skew=S] [--watched=MIN-MAX] [--zipf=S] [--error=KIND@INDEX]...";
+
+    public enum Popularity {
+        UNIFORM, ZIPF
+    }
+
+    /**
+     * Errors that can be planted in a given record. The movie errors take a movie index, the user
+     * errors a user index; the repeated id errors copy the id of the first record, so they need an
+     * index of at least 1.
+     */
+    public enum InjectedError {
+        MOVIE_TITLE, MOVIE_ID_LETTERS, MOVIE_ID_REPEATED, MOVIE_GENRE,
+        USER_NAME, USER_ID, USER_ID_REPEATED, UNKNOWN_MOVIE_ID, MISSING_MOVIE_IDS;
+
+        boolean isMovieError() {
+            return ordinal() <= MOVIE_GENRE.ordinal();
+        }
+
+        int minIndex() {
+            return this == MOVIE_ID_REPEATED || this == USER_ID_REPEATED ? 1 : 0;
+        }
+    }
+
+    private static final String[] TITLE_WORDS = {
+            "The", "Dark", "Knight", "Silent", "River", "Lost", "City", "Golden", "Empire", "Last", "Summer",
+            "Broken", "Arrow", "Hidden", "Garden", "Iron", "Heart", "Winter", "Storm", "Secret", "Forest",
+            "Wild", "Journey", "Crimson", "Tide", "Red", "Moon", "Little", "Women", "Great", "Escape",
+            "Blue", "Velvet", "Eternal", "Sunshine", "Queen", "Desert", "Kingdom", "Falling", "Star"
+    };
+    private static final String[] FIRST_NAMES = {
+            "Hassan", "Ali", "Sara", "Mona", "Omar", "Laila", "Youssef", "Nour", "Karim", "Hana",
+            "Ahmed", "Mariam", "Tarek", "Salma", "Mostafa", "Yasmin", "Khaled", "Dina", "Amr", "Farida"
+    };
+    private static final String[] LAST_NAMES = {
+            "Ali", "Mohamed", "Hassan", "Ibrahim", "Mahmoud", "Saleh", "Fathy", "Nabil", "Adel", "Samir"
+    };
+    private static final String[] DEFAULT_GENRES = {
+            "Action", "Adventure", "Animation", "Comedy", "Crime", "Documentary", "Drama", "Family",
+            "Fantasy", "History", "Horror", "Music", "Mystery", "Romance", "Science Fiction", "Thriller",
+            "War", "Western"
+    };
+
+    private final long seed;
+    private int movieCount = 100;
+    private int userCount = 1000;
+    private List<String> genres = Arrays.asList(DEFAULT_GENRES);
+    private double genreSkew = 0;
+    private int minGenresPerMovie = 1;
+    private int maxGenresPerMovie = 3;
+    private int minWatched = 1;
+    private int maxWatched = 10;
+    private Popularity popularity = Popularity.UNIFORM;
+    private double popularitySkew = 1.0;
+    private final Map<InjectedError, Integer> injectedErrors = new EnumMap<>(InjectedError.class);
+
+    public DatasetGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public DatasetGenerator movieCount(int movieCount) {
+        if (movieCount < 1 || movieCount > MAX_MOVIES) {
+            throw new IllegalArgumentException("Movie count must be between 1 and " + MAX_MOVIES
+                    + ", movie id numbers have three digits and must be unique");
+        }
+        this.movieCount = movieCount;
+        return this;
+    }
+
+    public DatasetGenerator userCount(int userCount) {
+        if (userCount < 0 || userCount >= 100_000_000) {
+            throw new IllegalArgumentException("User count must fit the eight digits of a user id");
+        }
+        this.userCount = userCount;
+        return this;
+    }
+
+    /**
+     * @param genres genre vocabulary, every genre must pass the genre validation
+     * @param skew   0 draws genres uniformly, larger values favour the first genres (Zipf exponent)
+     */
+    public DatasetGenerator genres(List<String> genres, double skew) {
+        if (genres == null || genres.isEmpty()) {
+            throw new IllegalArgumentException("At least one genre is needed");
+        }
+        this.genres = new ArrayList<>(genres);
+        this.genreSkew = skew;
+        this.maxGenresPerMovie = Math.min(maxGenresPerMovie, genres.size());
+        this.minGenresPerMovie = Math.min(minGenresPerMovie, maxGenresPerMovie);
+        return this;
+    }
+
+    public DatasetGenerator genresPerMovie(int min, int max) {
+        if (min < 1 || max < min || max > genres.size()) {
+            throw new IllegalArgumentException("Genres per movie must be between 1 and " + genres.size());
+        }
+        this.minGenresPerMovie = min;
+        this.maxGenresPerMovie = max;
+        return this;
+    }
+
+    /**
+     * Watch-list length range; lists are capped by the movie count.
+     */
+    public DatasetGenerator watchedPerUser(int min, int max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Watched movies per user must be at least 1");
+        }
+        this.minWatched = min;
+        this.maxWatched = max;
+        return this;
+    }
+
+    /**
+     * @param skew Zipf exponent, only used by {@link Popularity#ZIPF}; movie 0 is the most popular
+     */
+    public DatasetGenerator popularity(Popularity popularity, double skew) {
+        this.popularity = popularity;
+        this.popularitySkew = skew;
+        return this;
+    }
+
+    /**
+     * Plants one error of the given kind, so a generated file holds exactly one error per injected kind.
+     * Each record takes at most one error, and an index past the written records is rejected when the
+     * file is written.
+     */
+    public DatasetGenerator injectError(InjectedError error, int recordIndex) {
+        if (recordIndex < error.minIndex()) {
+            throw new IllegalArgumentException("Error " + error + " must be injected at an index of at least "
+                    + error.minIndex());
+        }
+        injectedErrors.forEach((other, index) -> {
+            if (other != error && other.isMovieError() == error.isMovieError() && index == recordIndex) {
+                throw new IllegalArgumentException("Errors " + other + " and " + error + " cannot both be injected at "
+                        + recordIndex);
+            }
+        });
+        injectedErrors.put(error, recordIndex);
+        return this;
+    }
+
+    public void writeMovies(Path file) throws IOException {
+        checkInjectedIndices(true, movieCount);
+        List<GeneratedMovie> movies = generateMovies();
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < movies.size(); i++) {
+                String title = movies.get(i).title;
+                String id = movies.get(i).id;
+                List<String> movieGenres = new ArrayList<>(movies.get(i).genres);
+
+                if (isInjected(InjectedError.MOVIE_TITLE, i)) {
+                    title = title.toLowerCase();
+                } else if (isInjected(InjectedError.MOVIE_ID_LETTERS, i)) {
+                    id = "Q" + id;
+                } else if (isInjected(InjectedError.MOVIE_ID_REPEATED, i)) {
+                    id = id.substring(0, id.length() - 3) + "000";
+                } else if (isInjected(InjectedError.MOVIE_GENRE, i)) {
+                    movieGenres.set(0, movieGenres.get(0) + "7");
+                }
+
+                writer.write(title + ", " + id + "\n");
+                writer.write(String.join(", ", movieGenres) + "\n");
+            }
+        }
+    }
+
+    public void writeUsers(Path file) throws IOException {
+        checkInjectedIndices(false, userCount);
+        // the catalog is small and regenerated from the seed, so users can be written without the movies file
+        List<GeneratedMovie> movies = generateMovies();
+        String[] movieIds = new String[movies.size()];
+        for (int i = 0; i < movieIds.length; i++) {
+            movieIds[i] = movies.get(i).id;
+        }
+
+        Random random = new Random(seed * 31 + 17);
+        ZipfSampler popularitySampler = new ZipfSampler(movieCount, popularity == Popularity.ZIPF ? popularitySkew : 0);
+        int maxLength = Math.min(maxWatched, movieCount);
+        int minLength = Math.min(minWatched, maxLength);
+        String firstUserId = null;
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            StringBuilder line = new StringBuilder();
+            for (int u = 0; u < userCount; u++) {
+                String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                String id = String.format("%08d", u) + (char) ('A' + random.nextInt(26));
+                if (firstUserId == null) {
+                    firstUserId = id;
+                }
+
+                int length = minLength + random.nextInt(maxLength - minLength + 1);
+                Set<Integer> watched = new LinkedHashSet<>();
+                while (watched.size() < length) {
+                    watched.add(popularitySampler.sample(random));
+                }
+                line.setLength(0);
+                for (int movie : watched) {
+                    if (line.length() > 0) {
+                        line.append(", ");
+                    }
+                    line.append(movieIds[movie]);
+                }
+
+                if (isInjected(InjectedError.USER_NAME, u)) {
+                    name = name + "9";
+                } else if (isInjected(InjectedError.USER_ID, u)) {
+                    id = id.substring(1);
+                } else if (isInjected(InjectedError.USER_ID_REPEATED, u)) {
+                    id = firstUserId;
+                } else if (isInjected(InjectedError.UNKNOWN_MOVIE_ID, u)) {
+                    // lower case letters never appear in a generated movie id
+                    line.append(", ").append("x000");
+                } else if (isInjected(InjectedError.MISSING_MOVIE_IDS, u)) {
+                    line.setLength(0);
+                }
+
+                writer.write(name + ", " + id + "\n");
+                writer.append(line).append('\n');
+            }
+        }
+    }
+
+    private void checkInjectedIndices(boolean movieErrors, int recordCount) {
+        injectedErrors.forEach((error, index) -> {
+            if (error.isMovieError() == movieErrors && index >= recordCount) {
+                throw new IllegalArgumentException("Error " + error + " is injected at " + index + " but only "
+                        + recordCount + " records are written");
+            }
+        });
+    }
+
+    private boolean isInjected(InjectedError error, int recordIndex) {
+        Integer index = injectedErrors.get(error);
+        return index != null && index == recordIndex;
+    }
+
+    private List<GeneratedMovie> generateMovies() {
+        Random random = new Random(seed);
+        ZipfSampler genreSampler = new ZipfSampler(genres.size(), genreSkew);
+        List<GeneratedMovie> movies = new ArrayList<>(movieCount);
+        for (int i = 0; i < movieCount; i++) {
+            int words = 1 + random.nextInt(4);
+            StringBuilder title = new StringBuilder();
+            StringBuilder id = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                String word = TITLE_WORDS[random.nextInt(TITLE_WORDS.length)];
+                title.append(w > 0 ? " " : "").append(word);
+                id.append(word.charAt(0));
+            }
+            id.append(String.format("%03d", i));
+            movies.add(new GeneratedMovie(title.toString(), id.toString(), movieGenres(random, genreSampler)));
+        }
+        return movies;
+    }
+
+    private List<String> movieGenres(Random random, ZipfSampler genreSampler) {
+        int count = minGenresPerMovie + random.nextInt(maxGenresPerMovie - minGenresPerMovie + 1);
+        Set<String> movieGenres = new LinkedHashSet<>();
+        while (movieGenres.size() < count) {
+            movieGenres.add(genres.get(genreSampler.sample(random)));
+        }
+        return new ArrayList<>(movieGenres);
+    }
+
+    private static class GeneratedMovie {
+        private final String title;
+        private final String id;
+        private final List<String> genres;
+
+        GeneratedMovie(String title, String id, List<String> genres) {
+            this.title = title;
+            this.id = id;
+            this.genres = genres;
+        }
+    }
+
+    /**
+     * Draws ranks in [0, n) with probability proportional to 1 / (rank + 1)^skew, a skew of 0 being
+     * uniform.
+     */
+    static class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double skew) {
+            cumulative = new double[n];
+            double total = 0;
+            for (int rank = 0; rank < n; rank++) {
+                total += 1.0 / Math.pow(rank + 1, skew);
+                cumulative[rank] = total;
+            }
+            for (int rank = 0; rank < n; rank++) {
+                cumulative[rank] /= total;
+            }
+        }
+
+        int sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            int rank = index >= 0 ? index : -index - 1;
+            return Math.min(rank, cumulative.length - 1);
+        }
+    }
+
+    /**
+     * Usage: {@code DatasetGenerator <outputDirectory> [--seed=N] [--movies=N] [--users=N]
+     * [--genres-per-movie=MIN-MAX] [--genre-skew=S] [--watched=MIN-MAX] [--zipf=S]
+     * [--error=KIND@INDEX]...}, writing {@code movies.txt} and {@code users.txt}. An invalid option
+     * value is reported on the standard error with the usage, and nothing is written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println(USAGE);
+            return;
+        }
+        DatasetGenerator generator;
+        try {
+            generator = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USAGE);
+            return;
+        }
+
+        Path directory = Path.of(args[0]);
+        Files.createDirectories(directory);
+        generator.writeMovies(directory.resolve("movies.txt"));
+        generator.writeUsers(directory.resolve("users.txt"));
+        System.out.println("Dataset written to " + directory.toAbsolutePath());
+    }
+
+    /**
+     * Builds a generator from the options following the output directory in {@code args}.
+     *
+     * @throws IllegalArgumentException for an unknown option or an invalid option value
+     */
+    static DatasetGenerator parse(String[] args) {
+        long seed = 42;
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                String value = arg.substring("--seed=".length());
+                try {
+                    seed = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid value {" + value + "} for --seed, expected a number");
+                }
+            }
+        }
+
+        DatasetGenerator generator = new DatasetGenerator(seed);
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--movies=")) {
+                generator.movieCount(intOption(arg, "--movies=", 1, MAX_MOVIES));
+            } else if (arg.startsWith("--users=")) {
+                generator.userCount(intOption(arg, "--users=", 0, 99_999_999));
+            } else if (arg.startsWith("--genres-per-movie=")) {
+                int[] range = rangeOption(arg, "--genres-per-movie=");
+                generator.genresPerMovie(range[0], range[1]);
+            } else if (arg.startsWith("--genre-skew=")) {
+                generator.genres(Arrays.asList(DEFAULT_GENRES), skewOption(arg, "--genre-skew="));
+            } else if (arg.startsWith("--watched=")) {
+                int[] range = rangeOption(arg, "--watched=");
+                generator.watchedPerUser(range[0], range[1]);
+            } else if (arg.startsWith("--zipf=")) {
+                generator.popularity(Popularity.ZIPF, skewOption(arg, "--zipf="));
+            } else if (arg.startsWith("--error=")) {
+                errorOption(generator, arg.substring("--error=".length()));
+            } else if (!arg.startsWith("--seed=")) {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        return generator;
+    }
+
+    private static int intOption(String arg, String option, int min, int max) {
+        String value = arg.substring(option.length());
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= min && parsed <= max) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below with the expected range
+        }
+        throw new IllegalArgumentException("Invalid value {" + value + "} for " + option.substring(0, option.length() - 1)
+                + ", expected a number from " + min + " to " + max);
+    }
+
+    private static int[] rangeOption(String arg, String option) {
+        String value = arg.substring(option.length());
+        String[] range = value.split("-", -1);
+        try {
+            if (range.length == 2) {
+                int min = Integer.parseInt(range[0]);
+                int max = Integer.parseInt(range[1]);
+                if (min >= 1 && max >= min) {
+                    return new int[]{min, max};
+                }
+            }
+        } catch (NumberFormatException e) {
+            // reported below with the expected form
+        }
+        throw new IllegalArgumentException("Invalid value {" + value + "} for " + option.substring(0, option.length() - 1)
+                + ", expected MIN-MAX with 1 <= MIN <= MAX");
+    }
+
+    private static double skewOption(String arg, String option) {
+        String value = arg.substring(option.length());
+        try {
+            double skew = Double.parseDouble(value);
+            if (skew >= 0 && Double.isFinite(skew)) {
+                return skew;
+            }
+        } catch (NumberFormatException e) {
+            // reported below with the expected range
+        }
+        throw new IllegalArgumentException("Invalid value {" + value + "} for " + option.substring(0, option.length() - 1)
+                + ", expected a number of at least 0");
+    }
+
+    private static void errorOption(DatasetGenerator generator, String value) {
+        String[] error = value.split("@", -1);
+        InjectedError kind = null;
+        int index = -1;
+        if (error.length == 2) {
+            kind = Arrays.stream(InjectedError.values()).filter(e -> e.name().equals(error[0])).findFirst().orElse(null);
+            try {
+                index = Integer.parseInt(error[1]);
+            } catch (NumberFormatException e) {
+                // reported below with the expected form
+            }
+        }
+        if (kind != null && index >= 0) {
+            // the generator reports an index too low for the kind or a record already taken
+            generator.injectError(kind, index);
+            return;
+        }
+        throw new IllegalArgumentException("Invalid value {" + value + "} for --error, expected KIND@INDEX with KIND one of "
+                + Arrays.toString(InjectedError.values()) + " and INDEX at least 0");
+    }
+}
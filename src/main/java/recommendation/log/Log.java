@@ -0,0 +1,50 @@
+package recommendation.log;
+
+import java.util.function.Supplier;
+
+/**
+ * Console diagnostics with a global verbosity level. Messages are passed as suppliers and only built
+ * when their level is enabled, so disabled diagnostics on hot paths (one per parsed record or
+ * created object) cost a level check and no string building or synchronized stdout write.
+ */
+public final class Log {
+
+    public enum Level {
+        OFF, ERROR, INFO, DEBUG
+    }
+
+    private static volatile Level level = Level.INFO;
+
+    private Log() {
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setLevel(Level level) {
+        Log.level = level != null ? level : Level.INFO;
+    }
+
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel != Level.OFF && messageLevel.compareTo(level) <= 0;
+    }
+
+    public static void error(Supplier<String> message) {
+        log(Level.ERROR, message);
+    }
+
+    public static void info(Supplier<String> message) {
+        log(Level.INFO, message);
+    }
+
+    public static void debug(Supplier<String> message) {
+        log(Level.DEBUG, message);
+    }
+
+    private static void log(Level messageLevel, Supplier<String> message) {
+        if (isEnabled(messageLevel)) {
+            System.out.println(message.get());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package recommendation.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps every genre to a small integer code, assigned in the order the genres are first met. Codes
+ * are bit indexes in the genre masks of {@link MovieCatalog}: a set of genres is stored as
+ * {@link #words()} longs, a single long as long as there are no more than 64 genres.
+ */
+public class GenreDictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> genres = new ArrayList<>();
+
+    public GenreDictionary() {
+    }
+
+    /**
+     * Copy with the same codes, which can then grow without affecting the original.
+     */
+    public GenreDictionary(GenreDictionary other) {
+        other.genres.forEach(this::encode);
+    }
+
+    /**
+     * @return the code of the genre, a new one if the genre was never seen
+     */
+    public int encode(String genre) {
+        Integer code = codes.get(genre);
+        if (code == null) {
+            code = genres.size();
+            codes.put(genre, code);
+            genres.add(genre);
+        }
+        return code;
+    }
+
+    /**
+     * @return the code of the genre, or -1 if the genre was never seen
+     */
+    public int codeOf(String genre) {
+        Integer code = codes.get(genre);
+        return code != null ? code : -1;
+    }
+
+    public String genreOf(int code) {
+        return genres.get(code);
+    }
+
+    public List<String> getGenres() {
+        return Collections.unmodifiableList(genres);
+    }
+
+    public int size() {
+        return genres.size();
+    }
+
+    /**
+     * @return the number of longs needed to hold one bit per genre, at least 1
+     */
+    public int words() {
+        return Math.max(1, (genres.size() + 63) >>> 6);
+    }
+}
@@ -1,5 +1,7 @@
 package recommendation.model;
 
+import recommendation.log.Log;
+
 import java.util.List;
 
 public class Movie {
@@ -11,7 +13,7 @@ public class Movie {
         this.movieTitle = movieTitle;
         this.movieId = movieId;
         this.movieGenres = movieGenres;
-        System.out.println("Created Movie: " + movieTitle);
+        Log.debug(() -> "Created Movie: " + movieTitle);
     }
 
     public String getMovieTitle() {
@@ -0,0 +1,197 @@
+package recommendation.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Read-only index over a list of movies, built once and shared by the parsers and the engine.
+ * Every movie is addressed by its position in the original list, so lookups by id or by genre
+ * never scan the catalog and positions can be used directly as keys in bitsets.
+ *
+ * <p>Genres are dictionary encoded: each movie keeps its genre codes and a genre mask of
+ * {@link #genreWords()} longs, so testing a movie against a set of genres is a few ANDs instead of
+ * string comparisons.
+ */
+public class MovieCatalog {
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final List<Movie> movies;
+    private final Map<String, Integer> positionsById;
+    private final int[] idPositions;
+    private final GenreDictionary genres;
+    private final int genreWords;
+    private final int[][] genreCodes;
+    private final long[] genreMasks;
+    private final int[][] positionsByCode;
+    // catalogs extended one from another share a lineage, the smaller one holding the first
+    // positions of the larger; a catalog is extended at most once within its lineage
+    private final Object lineage;
+    private final AtomicBoolean extended = new AtomicBoolean();
+
+    public MovieCatalog(List<Movie> movies) {
+        this(movies, null);
+    }
+
+    /**
+     * @param genres dictionary filled while parsing, so codes follow the file order; genres missing
+     *               from it are added. Null to build a new one.
+     */
+    public MovieCatalog(List<Movie> movies, GenreDictionary genres) {
+        this(movies, genres, new Object());
+    }
+
+    private MovieCatalog(List<Movie> movies, GenreDictionary genres, Object lineage) {
+        this.lineage = lineage;
+        this.movies = movies != null ? movies : new ArrayList<>();
+        this.positionsById = new HashMap<>();
+        this.genres = genres != null ? genres : new GenreDictionary();
+        this.genreCodes = new int[this.movies.size()][];
+        this.idPositions = new int[this.movies.size()];
+
+        for (int position = 0; position < this.movies.size(); position++) {
+            Movie movie = this.movies.get(position);
+            // keep the first movie for an id, later duplicates are only reachable by genre
+            positionsById.putIfAbsent(movie.getMovieId(), position);
+            idPositions[position] = positionsById.get(movie.getMovieId());
+            // a genre listed twice on the same movie must not be encoded twice
+            genreCodes[position] = movie.getMovieGenres().stream()
+                    .mapToInt(this.genres::encode)
+                    .distinct()
+                    .toArray();
+        }
+
+        // the dictionary is complete only now, so are the mask width and the posting list count
+        this.genreWords = this.genres.words();
+        this.genreMasks = new long[this.movies.size() * genreWords];
+        int[] genreSizes = new int[this.genres.size()];
+        for (int position = 0; position < genreCodes.length; position++) {
+            for (int code : genreCodes[position]) {
+                genreMasks[position * genreWords + (code >>> 6)] |= 1L << code;
+                genreSizes[code]++;
+            }
+        }
+
+        this.positionsByCode = new int[genreSizes.length][];
+        for (int code = 0; code < genreSizes.length; code++) {
+            positionsByCode[code] = new int[genreSizes[code]];
+            genreSizes[code] = 0;
+        }
+        for (int position = 0; position < genreCodes.length; position++) {
+            for (int code : genreCodes[position]) {
+                positionsByCode[code][genreSizes[code]++] = position;
+            }
+        }
+    }
+
+    /**
+     * @return a new catalog holding these movies followed by the given one. Every position of this
+     * catalog keeps its movie in the new one, so data keyed by position stays valid; this catalog is
+     * left unchanged.
+     */
+    public MovieCatalog withMovie(Movie movie) {
+        List<Movie> extendedMovies = new ArrayList<>(movies.size() + 1);
+        extendedMovies.addAll(movies);
+        extendedMovies.add(movie);
+        // a second extension of the same catalog starts a new lineage, its last position differs
+        Object extendedLineage = extended.compareAndSet(false, true) ? lineage : new Object();
+        return new MovieCatalog(extendedMovies, new GenreDictionary(genres), extendedLineage);
+    }
+
+    /**
+     * @return whether every position of this catalog holds the same movie in the other one, i.e. the
+     * other catalog is this one or was extended from it
+     */
+    public boolean isPrefixOf(MovieCatalog other) {
+        return other == this || (other.lineage == lineage && other.size() >= size());
+    }
+
+    public List<Movie> getMovies() {
+        return Collections.unmodifiableList(movies);
+    }
+
+    public int size() {
+        return movies.size();
+    }
+
+    public Movie getMovie(int position) {
+        return movies.get(position);
+    }
+
+    public Movie getMovie(String movieId) {
+        Integer position = positionsById.get(movieId);
+        return position != null ? movies.get(position) : null;
+    }
+
+    public boolean containsMovie(String movieId) {
+        return positionsById.containsKey(movieId);
+    }
+
+    /**
+     * @return the position of the movie in the catalog, or -1 if the id is unknown
+     */
+    public int positionOf(String movieId) {
+        Integer position = positionsById.get(movieId);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * @return the position of the first movie with the same id, which is the position itself unless
+     * the id is repeated; two movies have the same id exactly when their id positions are equal
+     */
+    public int idPosition(int position) {
+        return idPositions[position];
+    }
+
+    /**
+     * @return the positions of all movies tagged with the genre, in catalog order. The returned
+     * array is shared and must not be modified.
+     */
+    public int[] positionsOfGenre(String genre) {
+        int code = genres.codeOf(genre);
+        return code >= 0 && code < positionsByCode.length ? positionsByCode[code] : NO_POSITIONS;
+    }
+
+    /**
+     * @return the positions of all movies tagged with the genre code, in catalog order. The returned
+     * array is shared and must not be modified.
+     */
+    public int[] positionsOfGenre(int code) {
+        return positionsByCode[code];
+    }
+
+    public GenreDictionary getGenres() {
+        return genres;
+    }
+
+    /**
+     * @return the number of longs of a genre mask
+     */
+    public int genreWords() {
+        return genreWords;
+    }
+
+    /**
+     * @return the genre codes of the movie in the order of its genres list. The returned array is
+     * shared and must not be modified.
+     */
+    public int[] genreCodes(int position) {
+        return genreCodes[position];
+    }
+
+    /**
+     * @param mask {@link #genreWords()} longs with one bit per genre code
+     * @return whether the movie is tagged with at least one genre of the mask
+     */
+    public boolean hasAnyGenre(int position, long[] mask) {
+        int offset = position * genreWords;
+        long common = 0;
+        for (int word = 0; word < genreWords; word++) {
+            common |= genreMasks[offset + word] & mask[word];
+        }
+        return common != 0;
+    }
+}
@@ -0,0 +1,158 @@
+package recommendation.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+
+/**
+ * User table kept in direct buffers, outside of the garbage collected heap. All histories are
+ * concatenated in one int column of catalog positions, names and ids in one UTF-8 byte column, each
+ * with an offsets column. {@link #get(int)} returns a compact {@link User} whose history is a slice
+ * of the position column, so the engine reads it in place; only the name and id are decoded.
+ *
+ * <p>Users are appended with {@link #add(User)} and cannot be changed afterwards. Not thread safe
+ * while users are added, safe to read from several threads once filled.
+ */
+public class OffHeapUserStore extends AbstractList<User> {
+    private static final int INITIAL_USERS = 1 << 10;
+    // a direct buffer holds at most Integer.MAX_VALUE bytes
+    static final int MAX_BYTES = Integer.MAX_VALUE;
+    static final int MAX_INTS = Integer.MAX_VALUE / 4;
+
+    private final MovieCatalog catalog;
+    private int size;
+
+    // user i watched positions[historyOffsets[i], historyOffsets[i + 1])
+    private IntBuffer positions;
+    private IntBuffer historyOffsets;
+    // user i is named text[textOffsets[2i], textOffsets[2i + 1]) with id up to textOffsets[2i + 2]
+    private ByteBuffer text;
+    private IntBuffer textOffsets;
+
+    public OffHeapUserStore(MovieCatalog catalog) {
+        if (catalog == null) {
+            throw new IllegalArgumentException("Movies list cannot be null");
+        }
+        this.catalog = catalog;
+        this.positions = allocateInts(INITIAL_USERS * 4);
+        this.historyOffsets = allocateInts(INITIAL_USERS + 1);
+        this.text = ByteBuffer.allocateDirect(INITIAL_USERS * 32);
+        this.textOffsets = allocateInts(2 * INITIAL_USERS + 1);
+    }
+
+    /**
+     * Copies the user into the store. Movie ids are stored as positions in the store's catalog, so
+     * an id the catalog does not hold is rejected.
+     *
+     * @throws IllegalStateException when a column would outgrow the largest direct buffer, the store
+     *                               being left unchanged
+     */
+    @Override
+    public boolean add(User user) {
+        IntBuffer history = user.getMoviePositions(catalog);
+        byte[] name = user.getUserName().getBytes(StandardCharsets.UTF_8);
+        byte[] id = user.getUserId().getBytes(StandardCharsets.UTF_8);
+
+        int historyStart = historyOffsets.get(size);
+        int textStart = textOffsets.get(2 * size);
+        positions = ensureCapacity(positions, (long) historyStart + history.limit());
+        historyOffsets = ensureCapacity(historyOffsets, size + 2L);
+        text = ensureCapacity(text, (long) textStart + name.length + id.length);
+        textOffsets = ensureCapacity(textOffsets, 2L * size + 3);
+
+        for (int i = 0; i < history.limit(); i++) {
+            int position = history.get(i);
+            if (position < 0) {
+                throw new IllegalArgumentException("Movie Id {" + user.getMovieIds().get(i) + "} is not in the catalog");
+            }
+            positions.put(historyStart + i, position);
+        }
+        text.put(textStart, name);
+        text.put(textStart + name.length, id);
+
+        historyOffsets.put(size + 1, historyStart + history.limit());
+        textOffsets.put(2 * size + 1, textStart + name.length);
+        textOffsets.put(2 * size + 2, textStart + name.length + id.length);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public User get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int historyStart = historyOffsets.get(index);
+        IntBuffer history = positions.slice(historyStart, historyOffsets.get(index + 1) - historyStart);
+        return new User(decode(2 * index), decode(2 * index + 1), catalog, history);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public MovieCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * @return the number of watch entries over all users
+     */
+    public int historySize() {
+        return historyOffsets.get(size);
+    }
+
+    /**
+     * @return the bytes reserved outside of the heap
+     */
+    public long offHeapBytes() {
+        return 4L * positions.capacity() + 4L * historyOffsets.capacity()
+                + text.capacity() + 4L * textOffsets.capacity();
+    }
+
+    private String decode(int field) {
+        int from = textOffsets.get(field);
+        byte[] bytes = new byte[textOffsets.get(field + 1) - from];
+        text.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static IntBuffer allocateInts(int capacity) {
+        return ByteBuffer.allocateDirect(4 * capacity).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    // direct buffers cannot grow: copy into one twice as large, the old one is freed with its cleaner
+    private static IntBuffer ensureCapacity(IntBuffer buffer, long capacity) {
+        if (capacity <= buffer.capacity()) {
+            return buffer;
+        }
+        IntBuffer grown = allocateInts(grownCapacity(capacity, buffer.capacity(), MAX_INTS));
+        grown.put(0, buffer, 0, buffer.capacity());
+        return grown;
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, long capacity) {
+        if (capacity <= buffer.capacity()) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(grownCapacity(capacity, buffer.capacity(), MAX_BYTES));
+        grown.put(0, buffer, 0, buffer.capacity());
+        return grown;
+    }
+
+    /**
+     * @return twice the current capacity, at least the needed one and at most the maximum
+     * @throws IllegalStateException when the needed capacity is beyond the maximum
+     */
+    static int grownCapacity(long needed, int current, int maximum) {
+        if (needed > maximum) {
+            throw new IllegalStateException("Off-heap user store is full: " + needed + " entries needed in a column of at most "
+                    + maximum);
+        }
+        return (int) Math.min(maximum, Math.max(needed, 2L * current));
+    }
+}
@@ -1,5 +1,7 @@
 package recommendation.model;
 
+import recommendation.log.Log;
+
 import java.util.List;
 
 public class SingleRecommendation {
@@ -9,7 +11,7 @@ public class SingleRecommendation {
     public SingleRecommendation(User user, List<Movie> movies) {
         this.user = user;
         this.movies = movies;
-        System.out.println("Created recommendation for user: " + user.getUserName());
+        Log.debug(() -> "Created recommendation for user: " + user.getUserName());
     }
 
     public User getUser() {
@@ -1,33 +1,94 @@
 package recommendation.model;
 
+import recommendation.log.Log;
+
+import java.nio.IntBuffer;
+import java.util.AbstractList;
 import java.util.List;
 
 public class User {
     private String userName;
     private String userId;
     private List<String> movieIds;
+    // compact form: the history as catalog positions, the ids being a view over the catalog
+    private MovieCatalog catalog;
+    private IntBuffer moviePositions;
 
     public User(String userName, String userId, List<String> movieIds) {
         this.userName = userName;
         this.userId = userId;
         this.movieIds = movieIds;
-        System.out.println("Created User: " + userName);
+        Log.debug(() -> "Created User: " + userName);
+    }
+
+    /**
+     * Compact user: the history is kept as positions in the catalog, so a watch entry costs an int
+     * and {@link #getMovieIds()} returns the ids of the catalog movies instead of copies.
+     */
+    public User(String userName, String userId, MovieCatalog catalog, int[] moviePositions) {
+        this(userName, userId, catalog, IntBuffer.wrap(moviePositions));
+    }
+
+    /**
+     * Compact user reading its history in place, e.g. from a slice of an {@link OffHeapUserStore}.
+     * The positions are the buffer content from index 0 to its limit.
+     */
+    public User(String userName, String userId, MovieCatalog catalog, IntBuffer moviePositions) {
+        this(userName, userId, new PositionIds(catalog, moviePositions));
+        this.catalog = catalog;
+        this.moviePositions = moviePositions;
     }
 
     public String getUserName(){
         return this.userName;
     }
-    
+
     public String getUserId() {
         return userId;
     }
-    
+
     public List<String> getMovieIds() {
         return movieIds;
     }
 
+    /**
+     * @return the positions of the watched movies in the catalog, -1 for an id it does not hold, to be
+     * read with absolute gets up to the limit. The buffer is shared and must not be modified when the
+     * user was built on this catalog or on one it was extended from.
+     */
+    public IntBuffer getMoviePositions(MovieCatalog catalog) {
+        if (this.catalog != null && this.catalog.isPrefixOf(catalog)) {
+            return moviePositions;
+        }
+        int[] positions = new int[movieIds.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = catalog.positionOf(movieIds.get(i));
+        }
+        return IntBuffer.wrap(positions);
+    }
+
     @Override
     public String toString() {
         return "User: " + userName + ", ID: " + userId + ", movieIds: " + movieIds + "\n";
     }
-}
\ No newline at end of file
+
+    private static class PositionIds extends AbstractList<String> {
+        private final MovieCatalog catalog;
+        private final IntBuffer positions;
+
+        PositionIds(MovieCatalog catalog, IntBuffer positions) {
+            this.catalog = catalog;
+            this.positions = positions;
+        }
+
+        @Override
+        public String get(int index) {
+            return catalog.getMovie(positions.get(index)).getMovieId();
+        }
+
+        @Override
+        public int size() {
+            return positions.limit();
+        }
+    }
+}
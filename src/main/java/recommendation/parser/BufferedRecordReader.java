@@ -0,0 +1,41 @@
+package recommendation.parser;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+class BufferedRecordReader extends RecordReader {
+    private final BufferedReader bufread;
+    private String[] parts;
+
+    BufferedRecordReader(String file) throws IOException {
+        bufread = new BufferedReader(new FileReader(file));
+    }
+
+    @Override
+    boolean nextLine() throws IOException {
+        String line = bufread.readLine();
+        parts = line != null ? line.split(", ") : null;
+        return line != null;
+    }
+
+    @Override
+    int fieldCount() {
+        return parts.length;
+    }
+
+    @Override
+    String field(int index) {
+        return parts[index];
+    }
+
+    @Override
+    String[] fields() {
+        return parts;
+    }
+
+    @Override
+    public void close() throws IOException {
+        bufread.close();
+    }
+}
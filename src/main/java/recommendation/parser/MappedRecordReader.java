@@ -0,0 +1,168 @@
+package recommendation.parser;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads lines straight from a memory-mapped file. Lines and their {@code ", "} separators are found
+ * by scanning bytes, only the offsets of the fields are recorded, and a String is created for a
+ * field only when the parser asks for it. Files larger than one mapping are read through a sliding
+ * window that is re-mapped at the start of the line crossing its end.
+ */
+class MappedRecordReader extends RecordReader {
+    private static final long WINDOW_SIZE = 1L << 28;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long end;
+    private final long windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+    // absolute position of the next line to read
+    private long position;
+
+    // field offsets relative to the window, reused between lines
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+    private byte[] scratch = new byte[256];
+
+    MappedRecordReader(String path) throws IOException {
+        this(path, 0, -1);
+    }
+
+    MappedRecordReader(String path, long from, long to) throws IOException {
+        this(new RandomAccessFile(path, "r"), from, to, WINDOW_SIZE);
+    }
+
+    /**
+     * Reads the lines in {@code [from, to)} of the file, {@code to < 0} meaning the end of the file.
+     * {@code from} must be the start of a line.
+     */
+    MappedRecordReader(RandomAccessFile file, long from, long to, long windowSize) throws IOException {
+        this.file = file;
+        this.channel = file.getChannel();
+        this.end = to < 0 ? channel.size() : Math.min(to, channel.size());
+        this.windowSize = windowSize;
+        this.position = from;
+        this.windowStart = from;
+        this.windowEnd = from;
+    }
+
+    @Override
+    boolean nextLine() throws IOException {
+        if (position >= end) {
+            fieldCount = 0;
+            return false;
+        }
+        long terminator = findTerminator();
+        if (terminator < 0) {
+            map(position);
+            terminator = findTerminator();
+            if (terminator < 0) {
+                throw new IOException("Line at byte " + position + " is longer than " + windowSize + " bytes");
+            }
+        }
+        tokenize((int) (position - windowStart), (int) (terminator - windowStart));
+
+        // "\r\n", "\r" and "\n" all end a line, as in BufferedReader.readLine()
+        if (terminator < end && window.get((int) (terminator - windowStart)) == '\r'
+                && terminator + 1 < end && window.get((int) (terminator + 1 - windowStart)) == '\n') {
+            position = terminator + 2;
+        } else {
+            position = terminator + 1;
+        }
+        return true;
+    }
+
+    /**
+     * @return the absolute position of the terminator of the current line, {@code end} for a last
+     * line without one, or -1 when the line (or the byte after a '\r') is not inside the window
+     */
+    private long findTerminator() {
+        if (position < windowStart || position >= windowEnd) {
+            return -1;
+        }
+        int limit = (int) (windowEnd - windowStart);
+        for (int i = (int) (position - windowStart); i < limit; i++) {
+            byte b = window.get(i);
+            if (b == '\n') {
+                return windowStart + i;
+            }
+            if (b == '\r') {
+                // a '\n' right after the '\r' must be visible too
+                return (i + 1 < limit || windowEnd == end) ? windowStart + i : -1;
+            }
+        }
+        return windowEnd == end ? end : -1;
+    }
+
+    private void map(long from) throws IOException {
+        windowStart = from;
+        windowEnd = Math.min(end, from + windowSize);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+    }
+
+    // mirrors String.split(", "): no separator gives the whole line, otherwise trailing empty fields are dropped
+    private void tokenize(int from, int to) {
+        fieldCount = 0;
+        int start = from;
+        boolean separated = false;
+        int i = from;
+        while (i < to - 1) {
+            if (window.get(i) == ',' && window.get(i + 1) == ' ') {
+                addField(start, i);
+                separated = true;
+                i += 2;
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        addField(start, to);
+        if (separated) {
+            while (fieldCount > 0 && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+                fieldCount--;
+            }
+        }
+    }
+
+    private void addField(int start, int stop) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = stop;
+        fieldCount++;
+    }
+
+    @Override
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    @Override
+    String field(int index) {
+        if (index >= fieldCount) {
+            throw new ArrayIndexOutOfBoundsException("Index " + index + " out of bounds for length " + fieldCount);
+        }
+        int length = fieldEnds[index] - fieldStarts[index];
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        window.get(fieldStarts[index], scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
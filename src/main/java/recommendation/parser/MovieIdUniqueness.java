@@ -0,0 +1,28 @@
+package recommendation.parser;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Incremental form of {@link Validation#movieIdUniquenessValidation}, fed one movie id at a time
+ * while streaming. Only the three digit numbers are kept, so memory is bounded by the id space
+ * instead of the catalog size. The first repeated number is reported by {@link #validate()} once
+ * every record has been read, matching the error the list based check would give.
+ */
+public class MovieIdUniqueness {
+    private final Set<String> uniqueMovieIdNumbers = new HashSet<>();
+    private String repeatedMovieIdNumber;
+
+    public void add(String movieId) {
+        String numberInMovieId = movieId.substring(movieId.length()-3);
+        if (!uniqueMovieIdNumbers.add(numberInMovieId) && repeatedMovieIdNumber == null) {
+            repeatedMovieIdNumber = numberInMovieId;
+        }
+    }
+
+    public void validate() throws ValidationException {
+        if (repeatedMovieIdNumber != null) {
+            throw new ValidationException("ERROR: Movie Id numbers {"+repeatedMovieIdNumber+"} are repeated");
+        }
+    }
+}
@@ -1,49 +1,65 @@
 package recommendation.parser;
 
+import recommendation.log.Log;
+import recommendation.model.GenreDictionary;
 import recommendation.model.Movie;
 import recommendation.model.User;
 
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public class MovieParser {
     private List<Movie> movies;
+    private GenreDictionary genres;
+    private int movieCount;
     private String error;
 
     public MovieParser(String movieFile) {
-        movies = new ArrayList<>();
+        this(movieFile, ReadMode.BUFFERED, null);
+    }
 
-        try
-        {
-            if (movieFile == null) {
-                throw new IllegalArgumentException("File path cannot be null");
-            }
+    public MovieParser(String movieFile, ReadMode readMode) {
+        this(movieFile, readMode, null);
+    }
 
-            FileReader fileReader = new FileReader(movieFile);
-            BufferedReader bufread = new BufferedReader(fileReader);
+    public MovieParser(String movieFile, Consumer<Movie> consumer) {
+        this(movieFile, ReadMode.BUFFERED, consumer);
+    }
 
-            String firstLine;
-            
+    /**
+     * Streaming mode: every movie is handed to the consumer as soon as its two lines are validated and
+     * nothing is kept in memory, so {@link #getMovies()} stays empty. The id uniqueness check runs
+     * after the last record, so movies emitted before an error must be discarded by the caller when
+     * {@link #success()} is false.
+     */
+    public MovieParser(String movieFile, ReadMode readMode, Consumer<Movie> consumer) {
+        movies = new ArrayList<>();
+        genres = new GenreDictionary();
+        Consumer<Movie> sink = consumer != null ? consumer : movies::add;
+        MovieIdUniqueness movieIdUniqueness = new MovieIdUniqueness();
+
+        try (RecordReader records = RecordReader.open(movieFile, readMode))
+        {
             // TODO: check against missing lines, empty lines
 
             // reading the file, 2 lines by 2 lines
-            while((firstLine = bufread.readLine()) != null) {
-                var firstLineParts = firstLine.split(", ");
-                var mtitle = firstLineParts[0];
-                var mid = firstLineParts[1];
+            while(records.nextLine()) {
+                var mtitle = records.field(0);
+                var mid = records.field(1);
 
                 Validation.movieTitleValidation(mtitle);
 
                 Validation.movieIdValidation(mid, mtitle);
 
-                var secondLine = bufread.readLine();
-                var parsedGenres = List.of(secondLine.split(", "));
+                if (!records.nextLine()) {
+                    throw new IllegalArgumentException("Missing genres line for movie {"+mid+"}");
+                }
+                var parsedGenres = List.of(records.fields());
 
                 // Use a HashSet to automatically remove duplicates
                 var movieGenres = new ArrayList<String>();
@@ -59,40 +75,42 @@ public class MovieParser {
                 }
                 
                 Validation.movieGenresValidation(movieGenres, mid);
-                
-                
-                var movie = new Movie(mtitle, mid, movieGenres);
-                movies.add(movie);
+
+                // genres are interned through the dictionary, every movie shares one String per genre
+                movieGenres.replaceAll(genre -> genres.genreOf(genres.encode(genre)));
+                var movie = new Movie(mtitle, mid, List.copyOf(movieGenres));
+                movieIdUniqueness.add(mid);
+                movieCount++;
+                sink.accept(movie);
             }
             
-            Validation.movieIdUniquenessValidation(movies);
+            movieIdUniqueness.validate();
             
-            bufread.close();
-            System.out.println("Loaded movies: " + movies.toString());
+            Log.debug(() -> "Loaded movies: " + movieCount);
         
         } catch(ValidationException e) {
-            System.out.println("Validation: " +e);
+            Log.debug(() -> "Validation: " +e);
             error = e.getMessage();
         }
         catch(ArrayIndexOutOfBoundsException e) {
-            System.out.println("Exception: " +e);
+            Log.debug(() -> "Exception: " +e);
             error = "Movies file is not formatted correctly";
         }
         catch(NullPointerException e) {
-            System.out.println("Exception: " +e);
+            Log.debug(() -> "Exception: " +e);
             error = "Movies file is not formatted correctly";
         }
         catch(IllegalArgumentException e) {
-            System.out.println("Exception: " +e);
+            Log.debug(() -> "Exception: " +e);
             error = "Movies file is not formatted correctly";
         }
         catch(FileNotFoundException e) {
-            System.out.println("Exception: " +e);
+            Log.debug(() -> "Exception: " +e);
             error = "Movies file not found";
         }
         catch(IOException e)
         {
-            System.out.println("Exception: " +e);
+            Log.debug(() -> "Exception: " +e);
             error = e.getMessage();
         }
 
@@ -102,6 +120,17 @@ public class MovieParser {
         return movies;
     }
 
+    /**
+     * @return the genres of every parsed movie, encoded in file order
+     */
+    public GenreDictionary getGenres() {
+        return genres;
+    }
+
+    public int getMovieCount() {
+        return movieCount;
+    }
+
     public Boolean success() {
         return error == null;
     }
@@ -0,0 +1,240 @@
+package recommendation.parser;
+
+import recommendation.log.Log;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.User;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parses a users file on several cores. The file is cut into byte ranges, the line terminators of
+ * every range are counted in parallel, and each cut is then moved forward to the start of the next
+ * record (an even line number from the start of the file). Each range is parsed by its own
+ * {@link UserParser} on a memory-mapped reader, all sharing one {@link MovieCatalog}, and the results are merged in file order: the first
+ * range that failed gives the error, exactly as the sequential parser would have stopped there, and
+ * the user id uniqueness check runs on the merged list.
+ *
+ * <p>{@code Main} uses it for users files of 32 MiB or more kept on the heap; below that, splitting
+ * costs more than it saves.
+ */
+public class ParallelUserParser {
+    private static final long MAX_CHUNK_SIZE = 64L << 20;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private List<User> users;
+    private String error = null;
+
+    public ParallelUserParser(String userFile, List<Movie> movies) {
+        this(userFile, movies, ForkJoinPool.commonPool());
+    }
+
+    public ParallelUserParser(String userFile, List<Movie> movies, ExecutorService executor) {
+        this(userFile, movies != null ? new MovieCatalog(movies) : null, executor, 0);
+    }
+
+    public ParallelUserParser(String userFile, MovieCatalog catalog, ExecutorService executor) {
+        this(userFile, catalog, executor, 0);
+    }
+
+    /**
+     * @param chunkSize target size of a range in bytes, 0 to derive it from the file size and the
+     *                  number of cores
+     */
+    ParallelUserParser(String userFile, MovieCatalog catalog, ExecutorService executor, long chunkSize) {
+        if (userFile == null) {
+            throw new IllegalArgumentException("File path cannot be null");
+        }
+        if (catalog == null) {
+            throw new IllegalArgumentException("Movies list cannot be null");
+        }
+
+        users = new ArrayList<>();
+
+        try (RandomAccessFile file = new RandomAccessFile(userFile, "r")) {
+            long[] bounds = recordBounds(file.getChannel(), executor, chunkSize);
+
+            List<Future<UserParser>> chunks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                if (from < to) {
+                    chunks.add(executor.submit(() -> new UserParser(() -> new MappedRecordReader(userFile, from, to), catalog)));
+                }
+            }
+
+            for (Future<UserParser> chunk : chunks) {
+                UserParser parser = join(chunk);
+                // like the sequential parser, keep the users read before the failing record
+                users.addAll(parser.getUsers());
+                if (!parser.success()) {
+                    error = parser.getError();
+                    chunks.forEach(task -> task.cancel(true));
+                    return;
+                }
+            }
+
+            Validation.userIdUniquenessValidation(users);
+            Log.debug(() -> "Loaded users: " + users.size());
+        } catch(ValidationException e) {
+            Log.debug(() -> "Validation: " +e);
+            error = e.getMessage();
+        } catch(FileNotFoundException e) {
+            Log.debug(() -> "Exception: " +e);
+            error = "Users file not found";
+        }
+        catch(IOException e)
+        {
+            Log.debug(() -> "Exception: " +e);
+            error = e.getMessage();
+        }
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public Boolean success() {
+        return error == null;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return the start of every range followed by the file size, each start being the first byte of
+     * a record
+     */
+    private static long[] recordBounds(FileChannel channel, ExecutorService executor, long chunkSize) throws IOException {
+        long size = channel.size();
+        if (chunkSize <= 0) {
+            int parallelism = Runtime.getRuntime().availableProcessors() * 4;
+            chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(BUFFER_SIZE, size / parallelism + 1));
+        }
+        int chunkCount = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+
+        long[] raw = new long[chunkCount + 1];
+        for (int i = 0; i <= chunkCount; i++) {
+            raw[i] = Math.min(size, i * chunkSize);
+        }
+
+        // count the terminators of every raw range in parallel
+        List<Future<Long>> counts = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            long from = raw[i];
+            long to = raw[i + 1];
+            counts.add(executor.submit(() -> countTerminators(channel, size, from, to)));
+        }
+
+        long[] bounds = new long[chunkCount + 1];
+        bounds[chunkCount] = size;
+        long linesBefore = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            if (i > 0) {
+                bounds[i] = Math.max(bounds[i - 1], recordStart(channel, size, raw[i], linesBefore));
+            }
+            linesBefore += join(counts.get(i));
+        }
+        return bounds;
+    }
+
+    // a '\r' only ends a line on its own when no '\n' follows, as in BufferedReader.readLine()
+    private static long countTerminators(FileChannel channel, long size, long from, long to) throws IOException {
+        Bytes bytes = new Bytes(channel, size);
+        long count = 0;
+        for (long i = from; i < to; i++) {
+            int b = bytes.at(i);
+            if (b == '\n' || (b == '\r' && bytes.at(i + 1) != '\n')) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param linesBefore number of line terminators before {@code position}
+     * @return the first record start at or after {@code position}
+     */
+    private static long recordStart(FileChannel channel, long size, long position, long linesBefore) throws IOException {
+        Bytes bytes = new Bytes(channel, size);
+        int previous = bytes.at(position - 1);
+        boolean lineStart = previous == '\n' || (previous == '\r' && bytes.at(position) != '\n');
+        long line = linesBefore;
+        if (!lineStart) {
+            position = nextLineStart(bytes, size, position);
+            line++;
+        }
+        if (line % 2 == 1) {
+            position = nextLineStart(bytes, size, position);
+        }
+        return position;
+    }
+
+    private static long nextLineStart(Bytes bytes, long size, long position) throws IOException {
+        for (long i = position; i < size; i++) {
+            int b = bytes.at(i);
+            if (b == '\n') {
+                return i + 1;
+            }
+            if (b == '\r') {
+                return bytes.at(i + 1) == '\n' ? i + 2 : i + 1;
+            }
+        }
+        return size;
+    }
+
+    private static <T> T join(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Positional reads through a small buffer, -1 outside of the file.
+     */
+    private static class Bytes {
+        private final FileChannel channel;
+        private final long size;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long bufferStart = -1;
+
+        Bytes(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        int at(long position) throws IOException {
+            if (position < 0 || position >= size) {
+                return -1;
+            }
+            if (bufferStart < 0 || position < bufferStart || position >= bufferStart + buffer.limit()) {
+                buffer.clear();
+                bufferStart = position;
+                while (buffer.hasRemaining() && channel.read(buffer, bufferStart + buffer.position()) > 0) {
+                    // keep reading until the buffer is full or the file ends
+                }
+                buffer.flip();
+            }
+            return buffer.get((int) (position - bufferStart));
+        }
+    }
+}
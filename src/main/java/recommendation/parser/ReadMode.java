@@ -0,0 +1,11 @@
+package recommendation.parser;
+
+/**
+ * How the parsers read their input file.
+ */
+public enum ReadMode {
+    /** {@code BufferedReader.readLine()} followed by {@code String.split(", ")}. */
+    BUFFERED,
+    /** The file is memory-mapped and lines are tokenized straight from the mapped bytes. */
+    MAPPED
+}
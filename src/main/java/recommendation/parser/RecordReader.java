@@ -0,0 +1,48 @@
+package recommendation.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Line by line access to a two-line-record file, with each line already split on {@code ", "}.
+ * Fields follow the exact semantics of {@code line.split(", ")}, including dropped trailing empty
+ * fields, and asking for a missing field throws {@link ArrayIndexOutOfBoundsException} just like
+ * indexing the split array, so both parsers report the same errors whatever the read mode.
+ */
+abstract class RecordReader implements Closeable {
+
+    /**
+     * Opens a reader on demand, so the parsers map the opening errors like any other read error.
+     */
+    interface RecordSource {
+        RecordReader open() throws IOException;
+    }
+
+    static RecordReader open(String file, ReadMode mode) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File path cannot be null");
+        }
+        return mode == ReadMode.MAPPED ? new MappedRecordReader(file) : new BufferedRecordReader(file);
+    }
+
+    /**
+     * Moves to the next line.
+     * @return false when the end of the file is reached
+     */
+    abstract boolean nextLine() throws IOException;
+
+    abstract int fieldCount();
+
+    /**
+     * Only the requested field is turned into a String.
+     */
+    abstract String field(int index);
+
+    String[] fields() {
+        String[] fields = new String[fieldCount()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = field(i);
+        }
+        return fields;
+    }
+}
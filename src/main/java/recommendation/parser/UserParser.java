@@ -1,13 +1,16 @@
 package recommendation.parser;
 
+import recommendation.log.Log;
 import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.OffHeapUserStore;
 import recommendation.model.User;
+import recommendation.parser.RecordReader.RecordSource;
 
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -17,90 +20,128 @@ public class UserParser {
     private String error = null;
 
     public UserParser(String userFile, List<Movie> movies) {
+        this(userFile, movies, ReadMode.BUFFERED);
+    }
+
+    public UserParser(String userFile, List<Movie> movies, ReadMode readMode) {
+        this(userFile, movies != null ? new MovieCatalog(movies) : null, readMode);
+    }
+
+    public UserParser(String userFile, MovieCatalog catalog) {
+        this(userFile, catalog, ReadMode.BUFFERED);
+    }
+
+    /**
+     * Movie ids are checked against the catalog index, which can then be handed on to the engine.
+     */
+    public UserParser(String userFile, MovieCatalog catalog, ReadMode readMode) {
+        this(userFile, catalog, readMode, UserStorage.HEAP);
+    }
+
+    /**
+     * @param storage {@link UserStorage#OFF_HEAP} to keep the parsed users in an {@link OffHeapUserStore},
+     *                so {@link #getUsers()} grows outside of the heap
+     */
+    public UserParser(String userFile, MovieCatalog catalog, ReadMode readMode, UserStorage storage) {
         if (userFile == null) {
             throw new IllegalArgumentException("File path cannot be null");
         }
-        if (movies == null) {
+        if (catalog == null) {
             throw new IllegalArgumentException("Movies list cannot be null");
         }
 
+        users = storage == UserStorage.OFF_HEAP ? new OffHeapUserStore(catalog) : new ArrayList<>();
+        parse(() -> RecordReader.open(userFile, readMode), catalog, true);
+    }
+
+    /**
+     * Parses one slice of a users file, used by {@link ParallelUserParser} for each of its chunks. The
+     * user id uniqueness check is left to the caller since it spans all chunks.
+     */
+    UserParser(RecordSource source, MovieCatalog catalog) {
         users = new ArrayList<>();
+        parse(source, catalog, false);
+    }
 
-        try
+    private void parse(RecordSource source, MovieCatalog catalog, boolean wholeFile) {
+        try (RecordReader records = source.open())
         {
-            FileReader fileReader = new FileReader(userFile);
-            BufferedReader bufread = new BufferedReader(fileReader);
-
-            String firstLine;
-            
             // TODO: check against missing lines, empty lines
 
+            int[] marks = new int[catalog.size()];
+            int recordNumber = 0;
+
             // reading the file, 2 lines by 2 lines
-            while((firstLine = bufread.readLine()) != null) {
-                var firstLineParts = firstLine.split(", ");
-                var uname = firstLineParts[0];
-                var uid = firstLineParts[1];
+            while(records.nextLine()) {
+                var uname = records.field(0);
+                var uid = records.field(1);
 
                 Validation.userNameValidation(uname);
 
                 Validation.userIdValidation(uid);
 
-                var secondLine = bufread.readLine();
-                var parsedMovieIds = List.of(secondLine.split(", "));
+                if (!records.nextLine()) {
+                    throw new IllegalArgumentException("Missing movie Ids line for user {"+uname+"}");
+                }
+                var parsedMovieIds = List.of(records.fields());
 
                 if (parsedMovieIds.get(0).isEmpty()) {
                     throw new ValidationException("ERROR: Missing movie Ids for user {"+uname+"}");
                 }
-                // Use a HashSet to automatically remove duplicates
-                var movieIds = new ArrayList<String>();
-                var uniqueMovieIds = new HashSet<String>();
+                // the history is kept as catalog positions; a position marked with the current
+                // record number is a repeated id
+                var moviePositions = new int[parsedMovieIds.size()];
+                var movieCount = 0;
+                var record = ++recordNumber;
                 // remove spaces in the beginning and end of each movie ID
                 // and ensure uniqueness
                 for (int i = 0; i < parsedMovieIds.size(); i++) {
                     String movieId = parsedMovieIds.get(i).trim();
-                    if (uniqueMovieIds.add(movieId)) {
-                        movieIds.add(movieId);
-                    }
-                }
-
-                // validate movies exist
-                for (String movieId : movieIds) {
-                    boolean exists = movies.stream().anyMatch(movie -> movie.getMovieId().equals(movieId));
-                    if (!exists) {
+                    int position = catalog.positionOf(movieId);
+                    // validate movies exist
+                    if (position < 0) {
                         throw new ValidationException("ERROR: Movie Id {"+movieId+"} does not exist");
                     }
+                    if (marks[position] != record) {
+                        marks[position] = record;
+                        moviePositions[movieCount++] = position;
+                    }
                 }
-                
-                
-                var user = new User(uname, uid, movieIds);
+
+                var user = new User(uname, uid, catalog, Arrays.copyOf(moviePositions, movieCount));
                 users.add(user);
             }
-            
-            bufread.close();
-            Validation.userIdUniquenessValidation(users);
-            System.out.println("Loaded users: " + users.toString());
+
+            if (wholeFile) {
+                Validation.userIdUniquenessValidation(users);
+                Log.debug(() -> "Loaded users: " + users.toString());
+            }
         } catch(ValidationException e) {
-            System.out.println("Validation: " +e);
+            Log.debug(() -> "Validation: " +e);
             error = e.getMessage();
         }
         catch(ArrayIndexOutOfBoundsException e) {
-            System.out.println("Exception: " +e);
+            Log.debug(() -> "Exception: " +e);
             error = "Users file is not formatted correctly";
         }
         catch(NullPointerException e) {
-            System.out.println("Exception: " +e);
+            Log.debug(() -> "Exception: " +e);
             error = "Users file is not formatted correctly";
         } 
         catch(IllegalArgumentException e) {
-            System.out.println("Exception: " +e);
+            Log.debug(() -> "Exception: " +e);
             error = "Users file is not formatted correctly";
+        } catch(IllegalStateException e) {
+            // the off-heap store is full
+            Log.debug(() -> "Exception: " +e);
+            error = e.getMessage();
         } catch(FileNotFoundException e) {
-            System.out.println("Exception: " +e);
+            Log.debug(() -> "Exception: " +e);
             error = "Users file not found";
         }
         catch(IOException e)
         {
-            System.out.println("Exception: " +e);
+            Log.debug(() -> "Exception: " +e);
             error = e.getMessage();
         }
 
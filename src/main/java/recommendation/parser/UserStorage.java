@@ -0,0 +1,11 @@
+package recommendation.parser;
+
+/**
+ * Where the users parsed by {@link UserParser} are kept.
+ */
+public enum UserStorage {
+    /** One {@code User} object per user, the history as an {@code int[]} of catalog positions. */
+    HEAP,
+    /** An {@link recommendation.model.OffHeapUserStore}, users being decoded on access. */
+    OFF_HEAP
+}
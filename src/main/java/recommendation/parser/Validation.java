@@ -7,57 +7,44 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Record validation rules. The rules are hand-written character scanners equivalent to the original
+ * regular expressions, so a valid record is checked without compiling patterns or allocating; only
+ * a failing check builds its error message.
+ */
 public class Validation {
     static public void movieTitleValidation(String movieTitle) throws ValidationException{
-        if(movieTitle.matches("^[A-Za-z][A-Za-z\\s]+$")){
-            String[] wordsInMovieTitle=movieTitle.split(" ");
-            for(int i=0; i<wordsInMovieTitle.length; i++){
-                if(!((wordsInMovieTitle[i].charAt(0)>=65) && (wordsInMovieTitle[i].charAt(0)<=90))) {
-                    throw new ValidationException("ERROR: Movie Title {"+movieTitle+"} is wrong");
-                }
-            }
+        // "^[A-Za-z][A-Za-z\\s]+$" and every space separated word starts with a capital letter
+        if(isName(movieTitle) && everyWordCapitalized(movieTitle)){
             return;
         }
         throw new ValidationException("ERROR: Movie Title {"+movieTitle+"} is wrong");
     }
     static public void movieIdValidation(String movieId, String movieTitle) throws ValidationException{
-        String[] wordsInMovieTitle=movieTitle.split(" ");
-        String firstLetterInEachMovieTitleWord="";
-        for(int i=0; i<wordsInMovieTitle.length; i++){
-            firstLetterInEachMovieTitleWord+= wordsInMovieTitle[i].charAt(0);
-        }
-        if(movieId.matches("^[A-Z0-9]+$")){
-            if(!(firstLetterInEachMovieTitleWord.equals(movieId.substring(0,movieId.length()-3)))){
-                throw new ValidationException("ERROR: Movie Id letters {"+movieId+"} are wrong");
-            } else {
-                String lastThreeCharsInMovieId = movieId.substring(movieId.length()-3);
-                try{
-                    Integer.parseInt(lastThreeCharsInMovieId);
-                }
-                catch (NumberFormatException e){
-                    throw new ValidationException("ERROR: Movie Id letters {"+movieId+"} are wrong");
-                }
-            }
+        // "^[A-Z0-9]+$", the letters are the first letter of each title word, then three digits
+        int letters = movieId.length()-3;
+        if(letters >= 0 && isUpperCaseOrDigit(movieId) && initialsMatch(movieTitle, movieId, letters)
+                && isDigit(movieId.charAt(letters)) && isDigit(movieId.charAt(letters+1)) && isDigit(movieId.charAt(letters+2))){
             return;
         }
         throw new ValidationException("ERROR: Movie Id letters {"+movieId+"} are wrong");
     }
     static public void userNameValidation(String userName) throws ValidationException{
-        if(userName.matches("^[A-Za-z][A-Za-z\\s]+$")){
+        if(isName(userName)){
             return;
         }
         throw new ValidationException("ERROR: User Name {"+userName+"} is wrong");
     }
     static public void userIdValidation(String userId) throws ValidationException{
-        if((userId.length() == 9) &&userId.matches("^[A-Za-z0-9]+$")){
-            String firstEigthCharsInUserId = userId.substring(0,userId.length()-1);
-            try{
-                Integer.parseInt(firstEigthCharsInUserId);
+        // nine characters, the first eight being digits and the last a letter or digit
+        if(userId.length() == 9 && isLetterOrDigit(userId.charAt(8))){
+            boolean digits = true;
+            for(int i=0; i<8 && digits; i++){
+                digits = isDigit(userId.charAt(i));
             }
-            catch (NumberFormatException e){
-                throw new ValidationException("ERROR: User Id {"+userId+"} is wrong");
+            if(digits){
+                return;
             }
-            return;
         }
         throw new ValidationException("ERROR: User Id {"+userId+"} is wrong");
     }
@@ -71,12 +58,94 @@ public class Validation {
             if (movieGenres.get(i).isEmpty()) {
                 throw new ValidationException("ERROR: A Movie Genre for {"+movieId+"} is empty");
             }
-            if (!movieGenres.get(i).matches("^[A-Za-z][A-Za-z\\s]+$")) {
+            if (!isName(movieGenres.get(i))) {
                 throw new ValidationException("ERROR: Movie Genre {"+movieGenres.get(i)+"} is wrong");
             }
         }
     }
 
+    // "^[A-Za-z][A-Za-z\\s]+$"
+    private static boolean isName(String value){
+        if(value.length() < 2 || !isLetter(value.charAt(0))){
+            return false;
+        }
+        for(int i=1; i<value.length(); i++){
+            char c = value.charAt(i);
+            if(!isLetter(c) && !isWhitespace(c)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // words are split on single spaces as String.split(" ") does, trailing spaces end the last word
+    private static boolean everyWordCapitalized(String title){
+        int last = lastNonSpace(title);
+        for(int i=0; i<=last; i++){
+            if((i == 0 || title.charAt(i-1) == ' ') && !isUpperCase(title.charAt(i))){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean initialsMatch(String title, String movieId, int letters){
+        if(title.isEmpty()){
+            return false;
+        }
+        int last = lastNonSpace(title);
+        int matched = 0;
+        for(int i=0; i<=last; i++){
+            if(i == 0 || title.charAt(i-1) == ' '){
+                // an empty word (two spaces in a row) has no initial and never matches
+                if(matched == letters || title.charAt(i) == ' ' || title.charAt(i) != movieId.charAt(matched)){
+                    return false;
+                }
+                matched++;
+            }
+        }
+        return matched == letters;
+    }
+
+    private static int lastNonSpace(String value){
+        int last = value.length()-1;
+        while(last >= 0 && value.charAt(last) == ' '){
+            last--;
+        }
+        return last;
+    }
+
+    private static boolean isUpperCaseOrDigit(String value){
+        for(int i=0; i<value.length(); i++){
+            char c = value.charAt(i);
+            if(!isUpperCase(c) && !isDigit(c)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLetter(char c){
+        return isUpperCase(c) || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isUpperCase(char c){
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isDigit(char c){
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetterOrDigit(char c){
+        return isLetter(c) || isDigit(c);
+    }
+
+    // the characters matched by \s in a regular expression
+    private static boolean isWhitespace(char c){
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
     static public void userIdUniquenessValidation(List<User> users) throws ValidationException{
         Set<String> uniqueUserIds = new HashSet<>();
         for(int i=0;i<users.size();i++){
@@ -86,12 +155,10 @@ public class Validation {
         }
     }
     static public void movieIdUniquenessValidation(List<Movie> movies) throws ValidationException{
-        Set<String> uniqueMovieIds = new HashSet<>();
+        MovieIdUniqueness uniqueness = new MovieIdUniqueness();
         for(int i=0;i<movies.size();i++){
-            String numberInMovieId = movies.get(i).getMovieId().substring(movies.get(i).getMovieId().length()-3);
-            if(!uniqueMovieIds.add(numberInMovieId)){
-                throw new ValidationException("ERROR: Movie Id numbers {"+numberInMovieId+"} are repeated");
-            }
+            uniqueness.add(movies.get(i).getMovieId());
+            uniqueness.validate();
         }
     }
 }
@@ -0,0 +1,320 @@
+package recommendation.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import recommendation.engine.Recommender;
+import recommendation.log.Log;
+import recommendation.model.SingleRecommendation;
+import recommendation.writer.RecommendationWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the recommendations of an engine built once, over HTTP on the loopback interface:
+ * <ul>
+ *     <li>{@code GET /recommendations/{userId}} answers the recommendation of one user, 404 if the id
+ *     is unknown</li>
+ *     <li>{@code POST /recommendations} with one user id per line answers the recommendations of the
+ *     known ids, in the order asked</li>
+ * </ul>
+ * Bodies are UTF-8 text in the format of the recommendations file. Every exchange runs on its own
+ * virtual thread, so a slow client holds no platform thread.
+ *
+ * <p>Virtual threads are cheap but the engines are CPU bound, so requests are admitted in two steps:
+ * at most {@code maxConcurrent} are computed at once and at most {@code maxQueued} more wait for
+ * their turn; a request body is read before its turn comes, so a slow upload holds no computing
+ * slot. A request finding the queue full is answered 503 at once, and so is one still waiting
+ * when its deadline, counted from its arrival, passes; a batch past its deadline stops between two
+ * users. Clients are told to retry after a second. The latencies of the admitted requests and the
+ * counts of the refused ones are served as text by {@code GET /metrics}.
+ */
+public class RecommendationServer implements Closeable {
+    static final String PATH = "/recommendations";
+    static final String METRICS_PATH = "/metrics";
+    // larger batch bodies are refused with 413
+    static final int MAX_BODY_BYTES = 1 << 20;
+
+    private final Recommender engine;
+    private final int maxConcurrent;
+    private final long deadlineNanos;
+    // permits for the requests admitted, running or waiting, and for the running ones
+    private final Semaphore admitted;
+    private final Semaphore running;
+    private final ExecutorService executor;
+    private final HttpServer server;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /**
+     * Starts serving right away, computing as many requests at once as there are processors, with
+     * 64 more per processor waiting at most one second.
+     *
+     * @param port 0 for any free port, see {@link #getPort()}
+     */
+    public RecommendationServer(Recommender engine, int port) throws IOException {
+        this(engine, port, Runtime.getRuntime().availableProcessors(), 64 * Runtime.getRuntime().availableProcessors(),
+                Duration.ofSeconds(1));
+    }
+
+    /**
+     * Starts serving right away.
+     *
+     * @param port          0 for any free port, see {@link #getPort()}
+     * @param maxConcurrent requests computed at once
+     * @param maxQueued     admitted requests waiting for one of those slots, 0 to refuse them all
+     * @param deadline      time a request may take from its arrival before it is answered 503
+     */
+    public RecommendationServer(Recommender engine, int port, int maxConcurrent, int maxQueued, Duration deadline)
+            throws IOException {
+        if (engine == null) {
+            throw new IllegalArgumentException("Engine cannot be null");
+        }
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued cannot be negative");
+        }
+        if (deadline == null || deadline.isNegative() || deadline.isZero()) {
+            throw new IllegalArgumentException("deadline must be positive");
+        }
+        this.engine = engine;
+        this.maxConcurrent = maxConcurrent;
+        this.deadlineNanos = deadline.toNanos();
+        this.admitted = new Semaphore(maxConcurrent + maxQueued);
+        this.running = new Semaphore(maxConcurrent, true);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, this::handle);
+        server.createContext(METRICS_PATH, this::metrics);
+        server.setExecutor(executor);
+        server.start();
+        Log.info(() -> "Serving recommendations on http://" + server.getAddress().getHostString() + ":" + getPort() + PATH);
+    }
+
+    public Recommender getEngine() {
+        return engine;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits for none, exchanges in progress are cut.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        Log.info(() -> "Server stopped");
+    }
+
+    /**
+     * @return the latencies of the admitted requests, from arrival until their answer is ready to be
+     * sent, recorded before it is
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return the requests refused with 503 because the queue was full
+     */
+    public long getShed() {
+        return shed.get();
+    }
+
+    /**
+     * @return the requests answered 503 because their deadline passed
+     */
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long arrival = System.nanoTime();
+        try (exchange) {
+            Answer answer;
+            if (!admitted.tryAcquire()) {
+                shed.incrementAndGet();
+                answer = unavailable("Server is saturated\n");
+            } else {
+                // the permits and the latency are settled before the answer goes out, so a client that
+                // has it finds them in the metrics
+                try {
+                    answer = run(exchange, arrival);
+                } finally {
+                    admitted.release();
+                    latencies.record(System.nanoTime() - arrival);
+                }
+            }
+            answer.send(exchange);
+        } catch (IOException e) {
+            Log.debug(() -> "Exception: " + e);
+        }
+    }
+
+    private Answer run(HttpExchange exchange, long arrival) throws IOException {
+        // the body is read holding only the admission, so a slow upload keeps no compute slot; the
+        // time it takes counts against the deadline
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            return new Answer(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes\n");
+        }
+        try {
+            if (!running.tryAcquire(deadlineNanos - (System.nanoTime() - arrival), TimeUnit.NANOSECONDS)) {
+                timedOut.incrementAndGet();
+                return unavailable("Deadline exceeded\n");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return unavailable("Server is stopping\n");
+        }
+        try {
+            return route(exchange, body, arrival + deadlineNanos);
+        } finally {
+            running.release();
+        }
+    }
+
+    private Answer route(HttpExchange exchange, byte[] body, long deadline) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        if (path.equals(PATH) || path.equals(PATH + "/")) {
+            return method.equals("POST") ? recommendBatch(body, deadline) : methodNotAllowed("POST");
+        } else if (path.indexOf('/', PATH.length() + 1) < 0 && path.startsWith(PATH + "/")) {
+            return method.equals("GET") ? recommendOne(path.substring(PATH.length() + 1)) : methodNotAllowed("GET");
+        } else {
+            return new Answer(404, "Not found\n");
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                methodNotAllowed("GET").send(exchange);
+                return;
+            }
+            StringBuilder text = new StringBuilder();
+            text.append("requests ").append(latencies.count()).append('\n');
+            text.append("shed ").append(shed.get()).append('\n');
+            text.append("timed_out ").append(timedOut.get()).append('\n');
+            text.append("running ").append(maxConcurrent - running.availablePermits()).append('\n');
+            text.append("latency_p50_ms ").append(millis(latencies.percentile(0.5))).append('\n');
+            text.append("latency_p90_ms ").append(millis(latencies.percentile(0.9))).append('\n');
+            text.append("latency_p99_ms ").append(millis(latencies.percentile(0.99))).append('\n');
+            text.append("latency_p999_ms ").append(millis(latencies.percentile(0.999))).append('\n');
+            text.append("latency_max_ms ").append(millis(latencies.max())).append('\n');
+            new Answer(200, text.toString()).send(exchange);
+        } catch (IOException e) {
+            Log.debug(() -> "Exception: " + e);
+        }
+    }
+
+    private Answer recommendOne(String userId) throws IOException {
+        SingleRecommendation recommendation = engine.recommendFor(userId);
+        if (recommendation == null) {
+            return new Answer(404, "User Id {" + userId + "} does not exist\n");
+        }
+        return new Answer(200, format(List.of(recommendation)));
+    }
+
+    private Answer recommendBatch(byte[] body, long deadline) throws IOException {
+        List<String> userIds = new ArrayList<>();
+        for (String line : new String(body, StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) {
+                userIds.add(line.strip());
+            }
+        }
+        List<SingleRecommendation> found = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            if (System.nanoTime() - deadline > 0) {
+                timedOut.incrementAndGet();
+                return unavailable("Deadline exceeded\n");
+            }
+            SingleRecommendation recommendation = engine.recommendFor(userId);
+            if (recommendation != null) {
+                found.add(recommendation);
+            }
+        }
+        return new Answer(200, format(found));
+    }
+
+    private static Answer unavailable(String reason) {
+        return new Answer(503, reason, "Retry-After", "1");
+    }
+
+    private static Answer methodNotAllowed(String allowed) {
+        return new Answer(405, "Method not allowed\n", "Allow", allowed);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    static String format(List<SingleRecommendation> recommendations) throws IOException {
+        StringWriter text = new StringWriter();
+        try (RecommendationWriter writer = new RecommendationWriter(text)) {
+            for (SingleRecommendation recommendation : recommendations) {
+                writer.write(recommendation);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * A response computed in full before anything is sent, with at most one extra header.
+     */
+    private static final class Answer {
+        private final int status;
+        private final String text;
+        private final String header;
+        private final String headerValue;
+
+        Answer(int status, String text) {
+            this(status, text, null, null);
+        }
+
+        Answer(int status, String text, String header, String headerValue) {
+            this.status = status;
+            this.text = text;
+            this.header = header;
+            this.headerValue = headerValue;
+        }
+
+        void send(HttpExchange exchange) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            if (header != null) {
+                exchange.getResponseHeaders().set(header, headerValue);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            // -1 announces an empty body, 0 would mean a chunked one
+            exchange.sendResponseHeaders(status, bytes.length > 0 ? bytes.length : -1);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
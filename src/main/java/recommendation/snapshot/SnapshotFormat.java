@@ -0,0 +1,43 @@
+package recommendation.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Layout of a snapshot file, all numbers big-endian:
+ * <pre>
+ * int  MAGIC, int VERSION
+ * long movies file size, long movies file last modified, long users file size, long users file last modified
+ * int  genre count,  per genre: string
+ * int  movie count,  per movie: string title, string id, int genre count, int genre code...
+ * int  user count,   per user:  string name, string id, int movie count, int catalog position...
+ * long CRC32 of every byte before it
+ * </pre>
+ * A string is its UTF-8 length as an int followed by the bytes. Genre codes and catalog positions
+ * are those of the {@link recommendation.model.MovieCatalog} built from the movies in file order.
+ */
+final class SnapshotFormat {
+    static final int MAGIC = 0x4D525331;
+    static final int VERSION = 1;
+    static final int SOURCES_OFFSET = 8;
+    static final int HEADER_SIZE = SOURCES_OFFSET + 4 * 8;
+    // a snapshot is mapped in one buffer, indexed by int
+    static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private SnapshotFormat() {
+    }
+
+    /**
+     * @return size and last modification time of both source files, the snapshot being stale as soon
+     * as one of them changes
+     */
+    static long[] sources(String movieFile, String userFile) throws IOException {
+        Path movies = Path.of(movieFile);
+        Path users = Path.of(userFile);
+        return new long[]{
+                Files.size(movies), Files.getLastModifiedTime(movies).toMillis(),
+                Files.size(users), Files.getLastModifiedTime(users).toMillis()
+        };
+    }
+}
@@ -0,0 +1,181 @@
+package recommendation.snapshot;
+
+import recommendation.log.Log;
+import recommendation.model.GenreDictionary;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.OffHeapUserStore;
+import recommendation.model.User;
+import recommendation.parser.UserStorage;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Loads a snapshot written by {@link SnapshotWriter}. The file is memory-mapped, checked against its
+ * checksum and against the current size and modification time of the source files, and the user
+ * histories are read in place from the mapping. Nothing is validated again: when {@link #success()}
+ * is false the snapshot is missing, stale or damaged and the caller falls back to the text parsers.
+ */
+public class SnapshotReader {
+    private MovieCatalog catalog;
+    private List<User> users;
+    private String error;
+
+    public SnapshotReader(String snapshotFile, String movieFile, String userFile) {
+        this(snapshotFile, movieFile, userFile, UserStorage.HEAP);
+    }
+
+    /**
+     * @param storage {@link UserStorage#OFF_HEAP} to copy the users into an {@link OffHeapUserStore}
+     *                instead of keeping one {@code User} per user over the mapping
+     */
+    public SnapshotReader(String snapshotFile, String movieFile, String userFile, UserStorage storage) {
+        if (snapshotFile == null || movieFile == null || userFile == null) {
+            throw new IllegalArgumentException("File path cannot be null");
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(snapshotFile), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > SnapshotFormat.MAX_SIZE) {
+                error = "Snapshot of " + size + " bytes is larger than the " + SnapshotFormat.MAX_SIZE + " bytes that can be mapped";
+                return;
+            }
+            if (size < SnapshotFormat.HEADER_SIZE + 8) {
+                error = "Snapshot is corrupted";
+                return;
+            }
+            ByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (snapshot.getInt() != SnapshotFormat.MAGIC) {
+                error = "Snapshot is corrupted";
+                return;
+            }
+            int version = snapshot.getInt();
+            if (version != SnapshotFormat.VERSION) {
+                error = "Snapshot version " + version + " is not supported";
+                return;
+            }
+            long[] sources;
+            try {
+                sources = SnapshotFormat.sources(movieFile, userFile);
+            } catch (IOException e) {
+                error = "Snapshot is stale";
+                return;
+            }
+            for (long source : sources) {
+                if (snapshot.getLong() != source) {
+                    error = "Snapshot is stale";
+                    return;
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(snapshot.slice(0, (int) size - 8));
+            if (crc.getValue() != snapshot.getLong((int) size - 8)) {
+                error = "Snapshot is corrupted";
+                return;
+            }
+
+            snapshot.limit((int) size - 8);
+            catalog = readCatalog(snapshot);
+            users = readUsers(snapshot, catalog, storage);
+            Log.debug(() -> "Snapshot loaded: " + users.size() + " users");
+        } catch (NoSuchFileException e) {
+            Log.debug(() -> "Exception: " + e);
+            error = "Snapshot not found";
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            Log.debug(() -> "Exception: " + e);
+            error = "Snapshot is corrupted";
+        } catch (IllegalStateException e) {
+            // the off-heap store is full
+            Log.debug(() -> "Exception: " + e);
+            error = e.getMessage();
+        } catch (IOException e) {
+            Log.debug(() -> "Exception: " + e);
+            error = e.getMessage();
+        }
+        if (error != null) {
+            catalog = null;
+            users = null;
+        }
+    }
+
+    public MovieCatalog getCatalog() {
+        return catalog;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public Boolean success() {
+        return error == null;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    private static MovieCatalog readCatalog(ByteBuffer snapshot) {
+        GenreDictionary genres = new GenreDictionary();
+        int genreCount = count(snapshot);
+        for (int i = 0; i < genreCount; i++) {
+            genres.encode(readString(snapshot));
+        }
+        int movieCount = count(snapshot);
+        List<Movie> movies = new ArrayList<>(movieCount);
+        for (int i = 0; i < movieCount; i++) {
+            String title = readString(snapshot);
+            String id = readString(snapshot);
+            String[] movieGenres = new String[count(snapshot)];
+            for (int g = 0; g < movieGenres.length; g++) {
+                movieGenres[g] = genres.genreOf(snapshot.getInt());
+            }
+            movies.add(new Movie(title, id, Arrays.asList(movieGenres)));
+        }
+        return new MovieCatalog(movies, genres);
+    }
+
+    private static List<User> readUsers(ByteBuffer snapshot, MovieCatalog catalog, UserStorage storage) {
+        int userCount = count(snapshot);
+        List<User> users = storage == UserStorage.OFF_HEAP ? new OffHeapUserStore(catalog) : new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            String name = readString(snapshot);
+            String id = readString(snapshot);
+            int movieCount = count(snapshot);
+            // the history stays in the mapping, read through an int view of its bytes
+            IntBuffer positions = snapshot.slice(snapshot.position(), 4 * movieCount).asIntBuffer();
+            for (int m = 0; m < movieCount; m++) {
+                if (positions.get(m) < 0 || positions.get(m) >= catalog.size()) {
+                    throw new IllegalArgumentException("Movie position out of the catalog");
+                }
+            }
+            snapshot.position(snapshot.position() + 4 * movieCount);
+            users.add(new User(name, id, catalog, positions));
+        }
+        return users;
+    }
+
+    private static int count(ByteBuffer snapshot) {
+        int count = snapshot.getInt();
+        if (count < 0 || count > snapshot.remaining()) {
+            throw new IllegalArgumentException("Invalid count " + count);
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer snapshot) {
+        byte[] bytes = new byte[count(snapshot)];
+        snapshot.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,27 @@
+package recommendation.snapshot;
+
+import java.io.IOException;
+
+/**
+ * Size and last modification time of the movies and users files, taken before they are parsed and
+ * stored in the snapshot written from the result. A file changed while it was being parsed then no
+ * longer matches, and the snapshot is stale on the next run instead of holding the old data as new.
+ */
+public final class SnapshotSources {
+    private final long[] values;
+
+    private SnapshotSources(long[] values) {
+        this.values = values;
+    }
+
+    public static SnapshotSources of(String movieFile, String userFile) throws IOException {
+        if (movieFile == null || userFile == null) {
+            throw new IllegalArgumentException("File path cannot be null");
+        }
+        return new SnapshotSources(SnapshotFormat.sources(movieFile, userFile));
+    }
+
+    long[] values() {
+        return values;
+    }
+}
@@ -0,0 +1,170 @@
+package recommendation.snapshot;
+
+import recommendation.log.Log;
+import recommendation.model.GenreDictionary;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.User;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves a validated catalog and user list, with the size and modification time of the text files
+ * they were parsed from, so that {@link SnapshotReader} can load them again without parsing as long
+ * as those files are unchanged. The snapshot is written next to its target and moved in place once
+ * complete, a reader never sees a partial file. A snapshot larger than 2 GiB could not be mapped in
+ * one buffer, so it is refused before anything is written.
+ */
+public class SnapshotWriter {
+    private String error;
+
+    /**
+     * Stamps the snapshot with the source files as they are now, for a catalog and users known to be
+     * parsed from them as they are; otherwise see {@link #SnapshotWriter(String, SnapshotSources, MovieCatalog, List)}.
+     */
+    public SnapshotWriter(String snapshotFile, String movieFile, String userFile, MovieCatalog catalog, List<User> users) {
+        if (snapshotFile == null || movieFile == null || userFile == null) {
+            throw new IllegalArgumentException("File path cannot be null");
+        }
+        try {
+            write(snapshotFile, SnapshotSources.of(movieFile, userFile), catalog, users, SnapshotFormat.MAX_SIZE);
+        } catch (IOException e) {
+            Log.debug(() -> "Exception: " + e);
+            error = e.getMessage();
+        }
+    }
+
+    /**
+     * @param sources the source files as they were before the catalog and users were parsed from them
+     */
+    public SnapshotWriter(String snapshotFile, SnapshotSources sources, MovieCatalog catalog, List<User> users) {
+        this(snapshotFile, sources, catalog, users, SnapshotFormat.MAX_SIZE);
+    }
+
+    SnapshotWriter(String snapshotFile, SnapshotSources sources, MovieCatalog catalog, List<User> users, long maxSize) {
+        if (snapshotFile == null || sources == null) {
+            throw new IllegalArgumentException("Snapshot file and sources cannot be null");
+        }
+        write(snapshotFile, sources, catalog, users, maxSize);
+    }
+
+    private void write(String snapshotFile, SnapshotSources sources, MovieCatalog catalog, List<User> users, long maxSize) {
+        Path target = Path.of(snapshotFile).toAbsolutePath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long size = sizeOf(catalog, users);
+        if (size > maxSize) {
+            error = "Snapshot of " + size + " bytes would be larger than the " + maxSize + " bytes that can be mapped";
+            return;
+        }
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(temporary);
+                 DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc))) {
+                out.writeInt(SnapshotFormat.MAGIC);
+                out.writeInt(SnapshotFormat.VERSION);
+                for (long source : sources.values()) {
+                    out.writeLong(source);
+                }
+                writeCatalog(out, catalog);
+                writeUsers(out, catalog, users);
+                // the checksum covers everything written so far, so it goes through the stream unchecked
+                out.flush();
+                new DataOutputStream(file).writeLong(crc.getValue());
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Log.debug(() -> "Snapshot written: " + target);
+        } catch (IOException | IllegalStateException e) {
+            Log.debug(() -> "Exception: " + e);
+            error = e.getMessage();
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // nothing more to clean up
+            }
+        }
+    }
+
+    public Boolean success() {
+        return error == null;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return the bytes {@link SnapshotFormat} takes for this catalog and these users, checksum included
+     */
+    static long sizeOf(MovieCatalog catalog, List<User> users) {
+        long size = SnapshotFormat.HEADER_SIZE + 4;
+        for (String genre : catalog.getGenres().getGenres()) {
+            size += sizeOf(genre);
+        }
+        size += 4;
+        for (int position = 0; position < catalog.size(); position++) {
+            Movie movie = catalog.getMovie(position);
+            size += sizeOf(movie.getMovieTitle()) + sizeOf(movie.getMovieId()) + 4 + 4L * catalog.genreCodes(position).length;
+        }
+        size += 4;
+        for (User user : users) {
+            size += sizeOf(user.getUserName()) + sizeOf(user.getUserId()) + 4 + 4L * user.getMovieIds().size();
+        }
+        return size + 8;
+    }
+
+    private static long sizeOf(String value) {
+        return 4 + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void writeCatalog(DataOutputStream out, MovieCatalog catalog) throws IOException {
+        GenreDictionary genres = catalog.getGenres();
+        out.writeInt(genres.size());
+        for (String genre : genres.getGenres()) {
+            writeString(out, genre);
+        }
+        out.writeInt(catalog.size());
+        for (int position = 0; position < catalog.size(); position++) {
+            Movie movie = catalog.getMovie(position);
+            writeString(out, movie.getMovieTitle());
+            writeString(out, movie.getMovieId());
+            int[] codes = catalog.genreCodes(position);
+            out.writeInt(codes.length);
+            for (int code : codes) {
+                out.writeInt(code);
+            }
+        }
+    }
+
+    private static void writeUsers(DataOutputStream out, MovieCatalog catalog, List<User> users) throws IOException {
+        out.writeInt(users.size());
+        for (User user : users) {
+            writeString(out, user.getUserName());
+            writeString(out, user.getUserId());
+            IntBuffer positions = user.getMoviePositions(catalog);
+            out.writeInt(positions.limit());
+            for (int i = 0; i < positions.limit(); i++) {
+                if (positions.get(i) < 0) {
+                    throw new IllegalStateException("Movie Id {" + user.getMovieIds().get(i) + "} is not in the catalog");
+                }
+                out.writeInt(positions.get(i));
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
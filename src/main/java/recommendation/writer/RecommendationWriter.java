@@ -0,0 +1,52 @@
+package recommendation.writer;
+
+import recommendation.model.Movie;
+import recommendation.model.SingleRecommendation;
+import recommendation.model.User;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes recommendations one by one as they are produced. Each record is assembled in a single
+ * reused StringBuilder and handed to a buffered writer, so memory does not grow with the number of
+ * users or with the number of titles recommended to one user.
+ */
+public class RecommendationWriter implements Closeable {
+    private final BufferedWriter writer;
+    private final StringBuilder record = new StringBuilder();
+
+    public RecommendationWriter(String file) throws IOException {
+        this(new FileWriter(file));
+    }
+
+    /**
+     * Writes to any character stream, closed with this writer.
+     */
+    public RecommendationWriter(java.io.Writer out) {
+        writer = new BufferedWriter(out);
+    }
+
+    public void write(SingleRecommendation recommendation) throws IOException {
+        User user = recommendation.getUser();
+        List<Movie> movies = recommendation.getMovies();
+        record.setLength(0);
+        record.append(user.getUserName()).append(", ").append(user.getUserId()).append('\n');
+        for (int i = 0; i < movies.size(); i++) {
+            if (i > 0) {
+                record.append(", ");
+            }
+            record.append(movies.get(i).getMovieTitle());
+        }
+        record.append('\n');
+        writer.append(record);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -1,55 +1,44 @@
 package recommendation.writer;
 
-import recommendation.model.Movie;
+import recommendation.log.Log;
 import recommendation.model.SingleRecommendation;
-import recommendation.model.User;
 
-import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
 
 public class Writer {
+    private static final String RECOMMENDATIONS_FILE = "samples/recommendations.txt";
+
     private String error;
 
     public Writer() {
-        System.out.println("Writer initialized");
+        Log.debug(() -> "Writer initialized");
     }
     public void writeRecommendations(List<SingleRecommendation> recommendations){
-        System.out.println("Writing " + recommendations.size() + " recommendations to file");
-        try {
-            FileWriter writer = new FileWriter("samples/recommendations.txt");
-            System.out.println("writing output file");
-            recommendations.forEach(recommendation -> {
-                User user = recommendation.getUser();
-                List<Movie> movies = recommendation.getMovies();
-                String firstLine = user.getUserName() + ", " + user.getUserId() + "\n";
-                AtomicReference<String> secondLine = new AtomicReference<>("");
-                movies.forEach(movie -> {
-                    if(secondLine.toString().equals(""))
-                        secondLine.set(secondLine + movie.getMovieTitle());
-                    else
-                        secondLine.set(secondLine + ", " + movie.getMovieTitle());
-                });
-                secondLine.set(secondLine + "\n");
-                try {
-                    writer.write(firstLine);
-                    writer.write(String.valueOf(secondLine));
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-            writer.close();
+        Log.debug(() -> "Writing " + recommendations.size() + " recommendations to file");
+        try (RecommendationWriter writer = openRecommendations()) {
+            Log.debug(() -> "writing output file");
+            for (SingleRecommendation recommendation : recommendations) {
+                writer.write(recommendation);
+            }
         }catch (IOException e){
             e.printStackTrace();
         }
     }
 
+    /**
+     * Streaming alternative to {@link #writeRecommendations(List)}: the caller writes each
+     * recommendation as soon as it is computed and closes the writer at the end.
+     */
+    public RecommendationWriter openRecommendations() throws IOException {
+        return new RecommendationWriter(RECOMMENDATIONS_FILE);
+    }
+
     public void writeError(String error) throws IOException {
         FileWriter writer = new FileWriter("samples/errors.txt");
-        System.out.println("Writing errors file.");
+        Log.debug(() -> "Writing errors file.");
         try {
             writer.write(error);
             writer.close();
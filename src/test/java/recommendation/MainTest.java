@@ -1,6 +1,11 @@
 package recommendation;
 
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import recommendation.engine.RankedRecommendationSystem;
+import recommendation.engine.RecommendationCache;
+import recommendation.parser.ReadMode;
+import recommendation.parser.UserStorage;
 import java.io.*;
 import java.nio.file.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -137,4 +142,184 @@ public class MainTest {
         String error = Files.readString(Paths.get(ERROR_FILE));
         assertEquals("Users file is not formatted correctly", error);
     }
+
+    @Test
+    public void testRankedTopK() throws IOException {
+        String userFile = "src/test/resources/users/valid_users.txt";
+        String movieFile = "src/test/resources/movies/valid_movies.txt";
+        new Main(new Main.Options(userFile, movieFile).topK(1));
+        String output = Files.readString(Paths.get(OUTPUT_FILE));
+        assertEquals("Hassan Ali, 12345678X\nThe Godfather\nAli Mohamed, 87654321W\nThe Dark Knight\n", output);
+    }
+
+    // the second run loads the snapshot written by the first and writes the same recommendations
+    @Test
+    public void testSnapshotReload(@TempDir Path directory) throws IOException {
+        String userFile = "src/test/resources/users/valid_users.txt";
+        String movieFile = "src/test/resources/movies/valid_movies.txt";
+        String snapshotFile = directory.resolve("catalog.snapshot").toString();
+        new Main(new Main.Options(userFile, movieFile).snapshot(snapshotFile));
+        assertTrue(Files.exists(Paths.get(snapshotFile)));
+        String parsed = Files.readString(Paths.get(OUTPUT_FILE));
+
+        Files.delete(Paths.get(OUTPUT_FILE));
+        new Main(new Main.Options(userFile, movieFile).snapshot(snapshotFile));
+        assertEquals(parsed, Files.readString(Paths.get(OUTPUT_FILE)));
+    }
+
+    @Test
+    public void testEngineSelection() throws IOException {
+        String userFile = "src/test/resources/users/valid_users.txt";
+        String movieFile = "src/test/resources/movies/valid_movies.txt";
+        new Main(new Main.Options(userFile, movieFile).topK(1));
+        String ranked = Files.readString(Paths.get(OUTPUT_FILE));
+        Files.delete(Paths.get(OUTPUT_FILE));
+        new Main(new Main.Options(userFile, movieFile).topK(1).engine("ranked"));
+        assertEquals(ranked, Files.readString(Paths.get(OUTPUT_FILE)));
+
+        Files.delete(Paths.get(OUTPUT_FILE));
+        new Main(new Main.Options(userFile, movieFile).engine("minhash").neighbours(5).minHashBands(32).minHashRows(1));
+        assertTrue(Files.readString(Paths.get(OUTPUT_FILE)).contains("Ali Mohamed, 87654321W"));
+
+        Files.delete(Paths.get(OUTPUT_FILE));
+        new Main(new Main.Options(userFile, movieFile).engine("co-occurrence"));
+        assertTrue(Files.readString(Paths.get(OUTPUT_FILE)).contains("Ali Mohamed, 87654321W"));
+        assertThrows(IllegalArgumentException.class, () -> new Main.Options(userFile, movieFile).engine("magic"));
+    }
+
+    // off-heap users, parsed or loaded from the snapshot, give the same recommendations as heap ones
+    @Test
+    public void testOffHeapStorage(@TempDir Path directory) throws IOException {
+        String userFile = "src/test/resources/users/valid_users.txt";
+        String movieFile = "src/test/resources/movies/valid_movies.txt";
+        String snapshotFile = directory.resolve("catalog.snapshot").toString();
+        new Main(new Main.Options(userFile, movieFile).topK(1));
+        String heap = Files.readString(Paths.get(OUTPUT_FILE));
+        for (int run = 0; run < 2; run++) {
+            Files.delete(Paths.get(OUTPUT_FILE));
+            new Main(new Main.Options(userFile, movieFile).topK(1).snapshot(snapshotFile).storage(UserStorage.OFF_HEAP));
+            assertEquals(heap, Files.readString(Paths.get(OUTPUT_FILE)));
+        }
+    }
+
+    // the mapped reader gives the same recommendations and reports the same errors as the buffered one
+    @Test
+    public void testMappedRead() throws IOException {
+        String userFile = "src/test/resources/users/valid_users.txt";
+        String movieFile = "src/test/resources/movies/valid_movies.txt";
+        new Main(userFile, movieFile);
+        String buffered = Files.readString(Paths.get(OUTPUT_FILE));
+        Files.delete(Paths.get(OUTPUT_FILE));
+        new Main(new Main.Options(userFile, movieFile).readMode(ReadMode.MAPPED));
+        assertEquals(buffered, Files.readString(Paths.get(OUTPUT_FILE)));
+
+        new Main(new Main.Options("src/test/resources/users/invalid_user_id.txt", movieFile).readMode(ReadMode.MAPPED));
+        assertEquals("ERROR: User Id {1234567XY} is wrong", Files.readString(Paths.get(ERROR_FILE)));
+    }
+
+    // above the threshold the users are parsed in parallel, with the same output and errors
+    @Test
+    public void testParallelParse() throws IOException {
+        String userFile = "src/test/resources/users/valid_users.txt";
+        String movieFile = "src/test/resources/movies/valid_movies.txt";
+        new Main(userFile, movieFile);
+        String sequential = Files.readString(Paths.get(OUTPUT_FILE));
+        Files.delete(Paths.get(OUTPUT_FILE));
+        new Main(new Main.Options(userFile, movieFile).parallelParseBytes(0));
+        assertEquals(sequential, Files.readString(Paths.get(OUTPUT_FILE)));
+
+        new Main(new Main.Options("src/test/resources/users/invalid_user_id.txt", movieFile).parallelParseBytes(0));
+        assertEquals("ERROR: User Id {1234567XY} is wrong", Files.readString(Paths.get(ERROR_FILE)));
+    }
+
+    // a lazy engine is always served through a bounded cache, an eager one as it is
+    @Test
+    public void testServeWithCache() throws IOException {
+        String userFile = "src/test/resources/users/valid_users.txt";
+        String movieFile = "src/test/resources/movies/valid_movies.txt";
+        Main main = new Main(new Main.Options(userFile, movieFile).serve(0));
+        try {
+            RecommendationCache cache = assertInstanceOf(RecommendationCache.class, main.getServer().getEngine());
+            assertEquals(Main.DEFAULT_CACHE_SIZE, cache.getMaximumSize());
+            assertEquals(RecommendationCache.Policy.LRU, cache.getPolicy());
+        } finally {
+            main.getServer().close();
+        }
+        main = new Main(new Main.Options(userFile, movieFile).serve(0).cache(5, RecommendationCache.Policy.TINY_LFU));
+        try {
+            RecommendationCache cache = assertInstanceOf(RecommendationCache.class, main.getServer().getEngine());
+            assertEquals(5, cache.getMaximumSize());
+            assertEquals(RecommendationCache.Policy.TINY_LFU, cache.getPolicy());
+        } finally {
+            main.getServer().close();
+        }
+        main = new Main(new Main.Options(userFile, movieFile).serve(0).engine("ranked").cache(5, RecommendationCache.Policy.LRU));
+        try {
+            assertInstanceOf(RankedRecommendationSystem.class, main.getServer().getEngine());
+        } finally {
+            main.getServer().close();
+        }
+    }
+
+    // serving builds the engine but writes no file, until the server is closed
+    @Test
+    public void testServeMode() throws IOException {
+        String userFile = "src/test/resources/users/valid_users.txt";
+        String movieFile = "src/test/resources/movies/valid_movies.txt";
+        Main main = new Main(new Main.Options(userFile, movieFile).serve(0));
+        assertNotNull(main.getServer());
+        assertTrue(main.getServer().getPort() > 0);
+        main.getServer().close();
+        assertFalse(Files.exists(Paths.get(OUTPUT_FILE)));
+        assertNull(new Main(userFile, movieFile).getServer());
+    }
+
+    // bad option values print the usage instead of a stack trace, and nothing runs
+    @Test
+    public void testInvalidOptionValues() throws IOException {
+        PrintStream standardError = System.err;
+        for (String arg : new String[]{"--top-k=abc", "--top-k=0", "--serve=70000", "--serve=", "--engine=magic", "--log-level=loud", "--storage=disk", "--read=slow", "--neighbours=0", "--minhash-bands=x", "--minhash-rows=65", "--cache=0", "--cache-policy=fifo"}) {
+            ByteArrayOutputStream error = new ByteArrayOutputStream();
+            System.setErr(new PrintStream(error, true));
+            try {
+                Main.main(new String[]{arg, "src/test/resources/users/valid_users.txt", "src/test/resources/movies/valid_movies.txt"});
+            } finally {
+                System.setErr(standardError);
+            }
+            String message = error.toString();
+            assertTrue(message.startsWith("Error: Invalid value {"), arg + ": " + message);
+            assertTrue(message.contains(Main.USAGE), arg);
+            assertFalse(Files.exists(Paths.get(OUTPUT_FILE)), arg);
+        }
+    }
+
+    // the command line fills the options, the file arguments in either position around them
+    @Test
+    public void testParseOptions() {
+        Main.Options options = Main.Options.parse(new String[]{"--top-k=3", "users.txt", "--engine=minhash", "movies.txt",
+                "--serve=8080", "--storage=off-heap", "--snapshot=catalog.snapshot"});
+        assertEquals(3, options.topK);
+        assertEquals("minhash", options.engine);
+        assertEquals(8080, options.servePort);
+        assertEquals(UserStorage.OFF_HEAP, options.storage);
+        assertEquals("catalog.snapshot", options.snapshotFile);
+        assertEquals("users.txt", options.userFile);
+        assertEquals("movies.txt", options.movieFile);
+
+        Main.Options defaults = Main.Options.parse(new String[0]);
+        assertEquals("samples/users.txt", defaults.userFile);
+        assertEquals(-1, defaults.servePort);
+        assertEquals(UserStorage.HEAP, defaults.storage);
+        assertEquals(ReadMode.BUFFERED, defaults.readMode);
+        assertEquals(ReadMode.MAPPED, Main.Options.parse(new String[]{"--read=mapped"}).readMode);
+        Main.Options minHash = Main.Options.parse(new String[]{"--neighbours=5", "--minhash-bands=32", "--minhash-rows=2"});
+        assertEquals(5, minHash.neighbours);
+        assertEquals(32, minHash.minHashBands);
+        assertEquals(2, minHash.minHashRows);
+        Main.Options cache = Main.Options.parse(new String[]{"--cache-policy=tiny-lfu", "--cache=100"});
+        assertEquals(100, cache.cacheSize);
+        assertEquals(RecommendationCache.Policy.TINY_LFU, cache.cachePolicy);
+        assertThrows(IllegalArgumentException.class, () -> new Main.Options(null, "movies.txt"));
+        assertThrows(IllegalArgumentException.class, () -> new Main.Options("users.txt", "movies.txt").topK(-1));
+    }
 }
@@ -0,0 +1,113 @@
+package recommendation.engine;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.SingleRecommendation;
+import recommendation.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoOccurrenceRecommendationSystemTest {
+
+    private final MovieCatalog catalog = new MovieCatalog(Arrays.asList(
+            new Movie("The Shawshank Redemption", "TSR001", Arrays.asList("Drama")),
+            new Movie("The Godfather", "TG002", Arrays.asList("Crime", "Drama")),
+            new Movie("The Dark Knight", "TDK003", Arrays.asList("Action", "Crime", "Drama")),
+            new Movie("Heat", "H004", Arrays.asList("Crime")),
+            new Movie("Toy Story", "TS006", Arrays.asList("Animation"))
+    ));
+
+    // TSR001 and TG002 are always watched together, TDK003 once with each, H004 only with TDK003
+    private final List<User> users = Arrays.asList(
+            new User("Hassan Ali", "12345678X", Arrays.asList("TSR001", "TG002")),
+            new User("Ali Mohamed", "87654321W", Arrays.asList("TSR001", "TG002", "TDK003")),
+            new User("Mona Adel", "11111111A", Arrays.asList("TDK003", "H004")),
+            new User("Omar Adel", "22222222B", Arrays.asList("TSR001"))
+    );
+
+    private static List<String> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getMovieId).toList();
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testCosineSimilarity() {
+        CoOccurrenceRecommendationSystem engine = new CoOccurrenceRecommendationSystem(catalog, users, 10, 10);
+        // 2 common users, audiences of 3 and 2
+        assertEquals(2 / Math.sqrt(6), engine.similarity("TSR001", "TG002"), 1e-6);
+        assertEquals(1 / Math.sqrt(2), engine.similarity("TDK003", "H004"), 1e-6);
+        assertEquals(0, engine.similarity("TSR001", "H004"));
+        assertEquals(List.of("TG002", "TDK003"), ids(engine.getNeighbours("TSR001")));
+        assertTrue(engine.getNeighbours("TS006").isEmpty());
+        assertTrue(engine.getNeighbours("NON001").isEmpty());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testRecommendationsMergeNeighbours() {
+        CoOccurrenceRecommendationSystem engine = new CoOccurrenceRecommendationSystem(catalog, users, 10, 10);
+        // TG002: 2/sqrt(6), TDK003: 1/sqrt(6)
+        assertEquals(List.of("TG002", "TDK003"), ids(engine.recommendFor("22222222B").getMovies()));
+        // TDK003: 1/sqrt(6) from TSR001 + 1/2 from TG002, nothing reaches H004 nor TS006
+        assertEquals(List.of("TDK003"), ids(engine.recommendFor("12345678X").getMovies()));
+        // TG002: 1/2, TSR001: 1/sqrt(6), both through TDK003
+        assertEquals(List.of("TG002", "TSR001"), ids(engine.recommendFor("11111111A").getMovies()));
+        assertNull(engine.recommendFor("00000000Z"));
+        for (SingleRecommendation recommendation : engine.getSingleRecommendations()) {
+            assertSame(recommendation, engine.recommendFor(recommendation.getUser().getUserId()));
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testNeighboursAndResultsBounded() {
+        CoOccurrenceRecommendationSystem engine = new CoOccurrenceRecommendationSystem(catalog, users, 1, 1);
+        assertEquals(List.of("TG002"), ids(engine.getNeighbours("TSR001")));
+        engine.getSingleRecommendations().forEach(recommendation -> assertTrue(recommendation.getMovies().size() <= 1));
+        assertEquals(List.of("TG002"), ids(engine.recommendFor("22222222B").getMovies()));
+    }
+
+    // the parallel build gives the same table as the sequential one
+    @Tag("unit-test")
+    @Test
+    public void testParallelBuildMatchesSequential() {
+        Random random = new Random(5);
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            movies.add(new Movie("Movie", "M" + i, Arrays.asList("Drama")));
+        }
+        MovieCatalog large = new MovieCatalog(movies);
+        List<User> many = new ArrayList<>();
+        for (int u = 0; u < 500; u++) {
+            List<String> watched = new ArrayList<>();
+            for (int w = 0; w < 8; w++) {
+                watched.add("M" + (int) Math.abs(random.nextGaussian() * 60) % 300);
+            }
+            many.add(new User("User", "U" + u, watched));
+        }
+        List<SingleRecommendation> sequential = new CoOccurrenceRecommendationSystem(large, many, 20, 10, null)
+                .getSingleRecommendations();
+        List<SingleRecommendation> parallel = new CoOccurrenceRecommendationSystem(large, many, 20, 10)
+                .getSingleRecommendations();
+        for (int u = 0; u < many.size(); u++) {
+            assertEquals(sequential.get(u).getMovies(), parallel.get(u).getMovies());
+            List<String> watched = many.get(u).getMovieIds();
+            assertTrue(sequential.get(u).getMovies().stream().noneMatch(movie -> watched.contains(movie.getMovieId())));
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new CoOccurrenceRecommendationSystem(catalog, users, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CoOccurrenceRecommendationSystem(catalog, users, 1, 0));
+        assertTrue(new CoOccurrenceRecommendationSystem(null, null, 1, 1).getSingleRecommendations().isEmpty());
+    }
+}
@@ -0,0 +1,175 @@
+package recommendation.engine;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.SingleRecommendation;
+import recommendation.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MinHashRecommendationSystemTest {
+
+    private final MovieCatalog catalog = new MovieCatalog(Arrays.asList(
+            new Movie("The Shawshank Redemption", "TSR001", Arrays.asList("Drama")),
+            new Movie("The Godfather", "TG002", Arrays.asList("Crime", "Drama")),
+            new Movie("The Dark Knight", "TDK003", Arrays.asList("Action", "Crime", "Drama")),
+            new Movie("Heat", "H004", Arrays.asList("Crime")),
+            new Movie("Toy Story", "TS006", Arrays.asList("Animation")),
+            new Movie("Up", "U007", Arrays.asList("Animation"))
+    ));
+
+    // the first three users share most of their history, the fourth watched other movies
+    private final List<User> users = Arrays.asList(
+            new User("Hassan Ali", "12345678X", Arrays.asList("TSR001", "TG002", "TDK003")),
+            new User("Ali Mohamed", "87654321W", Arrays.asList("TSR001", "TG002", "TDK003", "H004")),
+            new User("Mona Adel", "11111111A", Arrays.asList("TSR001", "TG002")),
+            new User("Omar Adel", "22222222B", Arrays.asList("TS006", "U007")),
+            new User("Sara Adel", "33333333C", new ArrayList<>())
+    );
+
+    private static List<String> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getMovieId).toList();
+    }
+
+    private static List<String> userIds(List<User> users) {
+        return users.stream().map(User::getUserId).toList();
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testBucketMatesBecomeNeighbours() {
+        MinHashRecommendationSystem engine = new MinHashRecommendationSystem(catalog, users, 32, 2, 10, 10);
+        assertEquals(1, engine.similarity("12345678X", "12345678X"));
+        assertEquals(0, engine.similarity("12345678X", "22222222B"));
+        assertEquals(0, engine.similarity("12345678X", "33333333C"));
+        assertEquals(0, engine.similarity("12345678X", "00000000Z"));
+        assertTrue(engine.getNeighbours("12345678X").containsAll(List.of(users.get(1), users.get(2))));
+        assertFalse(engine.getNeighbours("12345678X").contains(users.get(3)));
+        assertTrue(engine.getNeighbours("22222222B").isEmpty());
+        assertTrue(engine.getNeighbours("33333333C").isEmpty());
+        assertTrue(engine.getNeighbours("00000000Z").isEmpty());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testRecommendationsComeFromNeighbours() {
+        MinHashRecommendationSystem engine = new MinHashRecommendationSystem(catalog, users, 32, 2, 10, 10);
+        assertEquals(List.of("H004"), ids(engine.recommendFor("12345678X").getMovies()));
+        // TDK003 is watched by both neighbours, H004 by one
+        assertEquals(List.of("TDK003", "H004"), ids(engine.recommendFor("11111111A").getMovies()));
+        assertTrue(engine.recommendFor("22222222B").getMovies().isEmpty());
+        assertTrue(engine.recommendFor("33333333C").getMovies().isEmpty());
+        assertNull(engine.recommendFor("00000000Z"));
+        for (SingleRecommendation recommendation : engine.getSingleRecommendations()) {
+            assertSame(recommendation, engine.recommendFor(recommendation.getUser().getUserId()));
+        }
+        assertEquals(userIds(users), engine.getSingleRecommendations().stream()
+                .map(recommendation -> recommendation.getUser().getUserId()).toList());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testNeighboursAndResultsBounded() {
+        MinHashRecommendationSystem engine = new MinHashRecommendationSystem(catalog, users, 32, 2, 1, 1);
+        // Jaccard 3/4 and 2/3, close enough for the estimate to rank either first
+        assertEquals(1, engine.getNeighbours("12345678X").size());
+        assertTrue(List.of("87654321W", "11111111A").containsAll(userIds(engine.getNeighbours("12345678X"))));
+        engine.getSingleRecommendations().forEach(recommendation -> assertTrue(recommendation.getMovies().size() <= 1));
+    }
+
+    // the share of agreeing signature values estimates the Jaccard similarity
+    @Tag("unit-test")
+    @Test
+    public void testSimilarityEstimatesJaccard() {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            movies.add(new Movie("Movie", "M" + i, Arrays.asList("Drama")));
+        }
+        Random random = new Random(3);
+        List<User> pairs = new ArrayList<>();
+        for (int p = 0; p < 20; p++) {
+            Set<String> first = new HashSet<>();
+            Set<String> second = new HashSet<>();
+            while (first.size() < 30) {
+                first.add("M" + random.nextInt(100));
+            }
+            while (second.size() < 30) {
+                second.add("M" + random.nextInt(100));
+            }
+            pairs.add(new User("User", "A" + p, new ArrayList<>(first)));
+            pairs.add(new User("User", "B" + p, new ArrayList<>(second)));
+        }
+        MinHashRecommendationSystem engine = new MinHashRecommendationSystem(new MovieCatalog(movies), pairs, 64, 4, 5, 5);
+        for (int p = 0; p < 20; p++) {
+            Set<String> both = new HashSet<>(pairs.get(2 * p).getMovieIds());
+            both.retainAll(pairs.get(2 * p + 1).getMovieIds());
+            double jaccard = both.size() / (60.0 - both.size());
+            assertEquals(jaccard, engine.similarity("A" + p, "B" + p), 0.15);
+        }
+    }
+
+    // the parallel run gives the same results as the sequential one, never a watched movie
+    @Tag("unit-test")
+    @Test
+    public void testParallelMatchesSequential() {
+        Random random = new Random(5);
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            movies.add(new Movie("Movie", "M" + i, Arrays.asList("Drama")));
+        }
+        MovieCatalog large = new MovieCatalog(movies);
+        List<User> many = new ArrayList<>();
+        for (int u = 0; u < 1000; u++) {
+            List<String> watched = new ArrayList<>();
+            for (int w = 0; w < 8; w++) {
+                watched.add("M" + (int) Math.abs(random.nextGaussian() * 60) % 300);
+            }
+            many.add(new User("User", "U" + u, watched));
+        }
+        List<SingleRecommendation> sequential = new MinHashRecommendationSystem(large, many, 16, 2, 20, 10, null)
+                .getSingleRecommendations();
+        List<SingleRecommendation> parallel = new MinHashRecommendationSystem(large, many, 16, 2, 20, 10)
+                .getSingleRecommendations();
+        for (int u = 0; u < many.size(); u++) {
+            assertEquals(sequential.get(u).getMovies(), parallel.get(u).getMovies());
+            List<String> watched = many.get(u).getMovieIds();
+            assertTrue(sequential.get(u).getMovies().stream().noneMatch(movie -> watched.contains(movie.getMovieId())));
+        }
+    }
+
+    // one crowded bucket: the candidates are capped, distinct and never the user itself
+    @Tag("unit-test")
+    @Test
+    public void testCrowdedBucketCapped() {
+        List<User> same = new ArrayList<>();
+        for (int u = 0; u < 3000; u++) {
+            same.add(new User("User", "U" + u, Arrays.asList("TSR001", "TG002")));
+        }
+        MinHashRecommendationSystem engine = new MinHashRecommendationSystem(catalog, same, 4, 2, 5000, 1);
+        for (String userId : List.of("U0", "U1500", "U2999")) {
+            List<User> neighbours = engine.getNeighbours(userId);
+            assertEquals(1024, neighbours.size());
+            assertEquals(1024, neighbours.stream().distinct().count());
+            assertTrue(neighbours.stream().noneMatch(user -> user.getUserId().equals(userId)));
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new MinHashRecommendationSystem(catalog, users, 0, 1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new MinHashRecommendationSystem(catalog, users, 1, 0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new MinHashRecommendationSystem(catalog, users, 1, 1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new MinHashRecommendationSystem(catalog, users, 1, 1, 1, 0));
+        assertTrue(new MinHashRecommendationSystem(null, null, 1, 1, 1, 1).getSingleRecommendations().isEmpty());
+    }
+}
@@ -0,0 +1,103 @@
+package recommendation.engine;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import recommendation.model.Movie;
+import recommendation.model.SingleRecommendation;
+import recommendation.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RankedRecommendationSystemTest {
+
+    private final List<Movie> movies = Arrays.asList(
+            new Movie("The Shawshank Redemption", "TSR001", Arrays.asList("Drama")),
+            new Movie("The Godfather", "TG002", Arrays.asList("Crime", "Drama")),
+            new Movie("The Dark Knight", "TDK003", Arrays.asList("Action", "Crime", "Drama")),
+            new Movie("Heat", "H004", Arrays.asList("Crime")),
+            new Movie("Forrest Gump", "FG005", Arrays.asList("Drama", "Romance")),
+            new Movie("Toy Story", "TS006", Arrays.asList("Animation"))
+    );
+
+    private static List<String> ids(SingleRecommendation recommendation) {
+        return recommendation.getMovies().stream().map(Movie::getMovieId).toList();
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testCandidatesRankedByWeightedSharedGenres() {
+        // Drama is watched twice and Crime once
+        List<User> users = List.of(new User("Hassan Ali", "12345678X", List.of("TSR001", "TG002")));
+        SingleRecommendation recommendation = new RankedRecommendationSystem(users, movies, 10).getSingleRecommendations().get(0);
+
+        // TDK003: Crime + Drama = 3, FG005: Drama = 2, H004: Crime = 1
+        assertEquals(List.of("TDK003", "FG005", "H004"), ids(recommendation));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testOnlyTopKKeptAndTiesFollowCatalogOrder() {
+        List<User> users = List.of(new User("Ali Mohamed", "87654321W", List.of("TSR001")));
+        RankedRecommendationSystem ranked = new RankedRecommendationSystem(users, movies, 2);
+        // TG002, TDK003 and FG005 all score 1, the earliest two in the catalog win
+        assertEquals(List.of("TG002", "TDK003"), ids(ranked.getSingleRecommendations().get(0)));
+        assertEquals(2, ranked.getTopK());
+        assertSame(ranked.getSingleRecommendations().get(0), ranked.recommendFor("87654321W"));
+        assertNull(ranked.recommendFor("00000000Z"));
+    }
+
+    // lookups go through an id index, the first user with an id wins as in a scan
+    @Tag("unit-test")
+    @Test
+    public void testRecommendForFirstUserWithId() {
+        List<User> users = List.of(
+                new User("Ali Mohamed", "87654321W", List.of("TSR001")),
+                new User("Hassan Ali", "12345678X", List.of("TS006")),
+                new User("Ali Mohamed", "87654321W", List.of("H004")));
+        RankedRecommendationSystem ranked = new RankedRecommendationSystem(users, movies, 2);
+        for (int u = 0; u < 2; u++) {
+            assertSame(ranked.getSingleRecommendations().get(u), ranked.recommendFor(users.get(u).getUserId()));
+        }
+        assertEquals(List.of(ranked.getSingleRecommendations().get(1), ranked.getSingleRecommendations().get(0)),
+                ranked.recommendFor(List.of("12345678X", "87654321W")));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testSameCandidatesAsGenreEngine() {
+        Random random = new Random(3);
+        List<String> genres = Arrays.asList("Action", "Comedy", "Drama", "Horror", "Crime");
+        List<Movie> catalog = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            catalog.add(new Movie("Movie", "M" + i, Arrays.asList(genres.get(random.nextInt(5)), genres.get(random.nextInt(5))).stream().distinct().toList()));
+        }
+        List<User> users = new ArrayList<>();
+        for (int u = 0; u < 50; u++) {
+            users.add(new User("User", "U" + u, List.of("M" + random.nextInt(300), "M" + random.nextInt(300))));
+        }
+
+        List<SingleRecommendation> all = new RecommendationSystem(users, catalog).getSingleRecommendations();
+        List<SingleRecommendation> ranked = new RankedRecommendationSystem(users, catalog, 1000).getSingleRecommendations();
+        List<SingleRecommendation> top5 = new RankedRecommendationSystem(users, catalog, 5).getSingleRecommendations();
+        for (int u = 0; u < users.size(); u++) {
+            assertEquals(new HashSet<>(all.get(u).getMovies()), new HashSet<>(ranked.get(u).getMovies()));
+            assertEquals(Math.min(5, all.get(u).getMovies().size()), top5.get(u).getMovies().size());
+            assertEquals(ranked.get(u).getMovies().subList(0, top5.get(u).getMovies().size()), top5.get(u).getMovies());
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testEmptyAndInvalidInput() {
+        assertTrue(new RankedRecommendationSystem(null, movies, 3).getSingleRecommendations().isEmpty());
+        List<User> users = List.of(new User("New User", "00000000X", List.of()));
+        assertTrue(new RankedRecommendationSystem(users, null, 3).getSingleRecommendations().get(0).getMovies().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new RankedRecommendationSystem(users, movies, 0));
+    }
+}
@@ -0,0 +1,150 @@
+package recommendation.engine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.SingleRecommendation;
+import recommendation.model.User;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecommendationCacheTest {
+
+    private RecommendationSystem engine;
+    private final AtomicLong clock = new AtomicLong();
+
+    @BeforeEach
+    public void setUp() {
+        List<Movie> movies = Arrays.asList(
+                new Movie("The Shawshank Redemption", "TSR001", Arrays.asList("Drama")),
+                new Movie("The Godfather", "TG002", Arrays.asList("Crime", "Drama")),
+                new Movie("The Dark Knight", "TDK003", Arrays.asList("Action", "Crime", "Drama"))
+        );
+        List<User> users = new ArrayList<>();
+        for (int u = 0; u < 10; u++) {
+            users.add(new User("User", "U" + u, Arrays.asList(movies.get(u % 3).getMovieId())));
+        }
+        engine = RecommendationSystem.lazy(new MovieCatalog(movies), users);
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testHitsAndMisses() {
+        RecommendationCache cache = new RecommendationCache(engine, 4, null, RecommendationCache.Policy.LRU);
+        SingleRecommendation first = cache.get("U1");
+        assertSame(first, cache.get("U1"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertNull(cache.get("NONE"));
+        assertEquals(1, cache.size(), "Unknown users are not cached");
+        // the cache keeps the results, not the lazy engine
+        assertEquals(0, engine.computedUsers());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testLruEviction() {
+        RecommendationCache cache = new RecommendationCache(engine, 2, null, RecommendationCache.Policy.LRU);
+        cache.get("U1");
+        cache.get("U2");
+        cache.get("U1");
+        cache.get("U3");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        cache.get("U1");
+        assertEquals(2, cache.getHits(), "U1 was kept as the most recently used");
+        cache.get("U2");
+        assertEquals(4, cache.getMisses(), "U2 was evicted");
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testTimeToLive() {
+        RecommendationCache cache = new RecommendationCache(engine, 4, Duration.ofSeconds(10),
+                RecommendationCache.Policy.LRU, clock::get);
+        SingleRecommendation first = cache.get("U1");
+        clock.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertSame(first, cache.get("U1"));
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertNotSame(first, cache.get("U1"));
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    // engine updates drop the entries of the users they change, and only those
+    @Tag("unit-test")
+    @Test
+    public void testInvalidatedByUpdates() {
+        RecommendationCache cache = new RecommendationCache(engine, 10, null, RecommendationCache.Policy.LRU);
+        cache.get("U0");
+        cache.get("U1");
+        cache.get("U2");
+        engine.addWatchedMovie("U0", "TG002");
+        assertEquals(2, cache.size());
+        assertEquals(engine.recommendFor("U0").getMovies(), cache.get("U0").getMovies());
+
+        // U0, U1 and U2 all have Drama in their history
+        engine.addMovie(new Movie("Alien", "A004", Arrays.asList("Horror", "Drama")));
+        assertEquals(0, cache.size());
+        assertTrue(cache.get("U2").getMovies().stream().anyMatch(movie -> movie.getMovieId().equals("A004")));
+
+        engine.removeUser("U2");
+        assertNull(cache.get("U2"));
+
+        cache.close();
+        cache.get("U3");
+        engine.addWatchedMovie("U3", "TG002");
+    }
+
+    // a one-off lookup does not push out a user asked for more often
+    @Tag("unit-test")
+    @Test
+    public void testTinyLfuAdmission() {
+        RecommendationCache cache = new RecommendationCache(engine, 2, null, RecommendationCache.Policy.TINY_LFU);
+        for (int i = 0; i < 5; i++) {
+            cache.get("U1");
+            cache.get("U2");
+        }
+        cache.get("U3");
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getEvictions());
+        cache.get("U1");
+        cache.get("U2");
+        assertEquals(10, cache.getHits());
+
+        // once it is asked for often enough, it gets in
+        for (int i = 0; i < 10; i++) {
+            cache.get("U3");
+        }
+        assertEquals(1, cache.getEvictions());
+    }
+
+    // as a Recommender the cache answers lookups, the bulk results come from the engine
+    @Tag("unit-test")
+    @Test
+    public void testAsRecommender() {
+        Recommender cached = new RecommendationCache(engine, 2, null, RecommendationCache.Policy.TINY_LFU);
+        assertSame(cached.recommendFor("U1"), cached.recommendFor("U1"));
+        assertEquals(1, ((RecommendationCache) cached).getHits());
+        assertEquals(Arrays.asList(cached.recommendFor("U2"), null), cached.recommendFor(List.of("U2", "NONE")));
+        List<SingleRecommendation> all = new ArrayList<>();
+        cached.forEachRecommendation(all::add);
+        assertEquals(10, all.size());
+        assertEquals(0, engine.computedUsers());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RecommendationCache(null, 1, null, null));
+        assertThrows(IllegalArgumentException.class, () -> new RecommendationCache(engine, 0, null, null));
+    }
+}
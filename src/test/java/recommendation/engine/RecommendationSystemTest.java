@@ -2,11 +2,21 @@ package recommendation.engine;
 
 import org.junit.jupiter.api.Tag;
 import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
 import recommendation.model.User;
 import recommendation.model.SingleRecommendation;
 import org.junit.jupiter.api.Test;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class RecommendationSystemTest {
@@ -182,4 +192,433 @@ public class RecommendationSystemTest {
         }
     }
 
+    @Tag("unit-test")
+    @Test
+    public void testRecommendationOrderFollowsGenreDiscovery() {
+        movies = Arrays.asList(
+                new Movie("Alpha", "A001", Arrays.asList("Comedy")),
+                new Movie("Beta", "B002", Arrays.asList("Drama", "Comedy")),
+                new Movie("Gamma", "G003", Arrays.asList("Drama")),
+                new Movie("Delta", "D004", Arrays.asList("Horror", "Drama"))
+        );
+        users = Arrays.asList(
+                new User("Order Checker", "11111111A", Arrays.asList("G003", "A001"))
+        );
+
+        recommendationSystem = new RecommendationSystem(users, movies);
+        List<String> recommended = recommendationSystem.getSingleRecommendations().get(0).getMovies()
+                .stream().map(Movie::getMovieId).toList();
+
+        // Drama is met first in the history, so its movies come first in catalog order, then Comedy
+        assertEquals(Arrays.asList("B002", "D004"), recommended);
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testMatchesNestedScanOnRandomCatalog() {
+        Random random = new Random(42);
+        List<String> genres = Arrays.asList("Action", "Comedy", "Drama", "Horror", "Crime", "Romance");
+        movies = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            List<String> movieGenres = new ArrayList<>();
+            int count = 1 + random.nextInt(3);
+            for (int g = 0; g < count; g++) {
+                String genre = genres.get(random.nextInt(genres.size()));
+                if (!movieGenres.contains(genre)) {
+                    movieGenres.add(genre);
+                }
+            }
+            movies.add(new Movie("Movie", "M" + i, movieGenres));
+        }
+        users = new ArrayList<>();
+        for (int u = 0; u < 30; u++) {
+            List<String> watched = new ArrayList<>();
+            int count = random.nextInt(6);
+            for (int w = 0; w < count; w++) {
+                watched.add("M" + random.nextInt(220));
+            }
+            users.add(new User("User", "U" + u, watched));
+        }
+
+        recommendationSystem = new RecommendationSystem(users, movies);
+        List<SingleRecommendation> recs = recommendationSystem.getSingleRecommendations();
+        for (int u = 0; u < users.size(); u++) {
+            assertEquals(nestedScan(users.get(u), movies), recs.get(u).getMovies());
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testParallelMatchesSequentialOrder() {
+        List<String> genres = Arrays.asList("Action", "Comedy", "Drama", "Horror");
+        movies = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            movies.add(new Movie("Movie", "M" + i, Arrays.asList(genres.get(i % 4), genres.get((i / 4) % 4))));
+        }
+        users = new ArrayList<>();
+        for (int u = 0; u < 1000; u++) {
+            users.add(new User("User", "U" + u, Arrays.asList("M" + (u % 50), "M" + ((u * 7) % 50))));
+        }
+
+        List<SingleRecommendation> sequential = new RecommendationSystem(users, movies).getSingleRecommendations();
+        List<SingleRecommendation> forkJoin = new RecommendationSystem(users, movies, ForkJoinPool.commonPool())
+                .getSingleRecommendations();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<SingleRecommendation> fixed;
+        try {
+            fixed = new RecommendationSystem(users, movies, executor).getSingleRecommendations();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(sequential.size(), forkJoin.size());
+        assertEquals(sequential.size(), fixed.size());
+        for (int u = 0; u < sequential.size(); u++) {
+            assertSame(users.get(u), forkJoin.get(u).getUser());
+            assertEquals(sequential.get(u).getMovies(), forkJoin.get(u).getMovies());
+            assertEquals(sequential.get(u).getMovies(), fixed.get(u).getMovies());
+        }
+    }
+
+    // users holding catalog positions get the same output, repeated catalog ids included
+    @Tag("unit-test")
+    @Test
+    public void testCompactUsersMatchListUsers() {
+        Random random = new Random(7);
+        List<String> genres = Arrays.asList("Action", "Comedy", "Drama", "Horror");
+        movies = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            movies.add(new Movie("Movie", "M" + random.nextInt(80),
+                    Arrays.asList(genres.get(random.nextInt(4)), genres.get(random.nextInt(4)))));
+        }
+        MovieCatalog catalog = new MovieCatalog(movies);
+        users = new ArrayList<>();
+        List<User> compactUsers = new ArrayList<>();
+        for (int u = 0; u < 50; u++) {
+            List<String> watched = new ArrayList<>();
+            for (int w = random.nextInt(5); w > 0; w--) {
+                String movieId = movies.get(random.nextInt(movies.size())).getMovieId();
+                if (!watched.contains(movieId)) {
+                    watched.add(movieId);
+                }
+            }
+            users.add(new User("User", "U" + u, watched));
+            compactUsers.add(new User("User", "U" + u, catalog, watched.stream().mapToInt(catalog::positionOf).toArray()));
+        }
+
+        List<SingleRecommendation> expected = new RecommendationSystem(users, movies).getSingleRecommendations();
+        List<SingleRecommendation> compact = new RecommendationSystem(catalog, compactUsers).getSingleRecommendations();
+        for (int u = 0; u < users.size(); u++) {
+            assertEquals(users.get(u).getMovieIds(), compactUsers.get(u).getMovieIds());
+            assertEquals(expected.get(u).getMovies(), compact.get(u).getMovies());
+        }
+    }
+
+    // every incremental update leaves the engine equal to a full recompute over the changed input
+    @Tag("unit-test")
+    @Test
+    public void testIncrementalUpdatesMatchFullRecompute() {
+        Random random = new Random(11);
+        List<String> genres = Arrays.asList("Action", "Comedy", "Drama", "Horror", "Crime", "Romance", "Sci-Fi");
+        movies = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            movies.add(new Movie("Movie", "M" + i, Arrays.asList(genres.get(random.nextInt(5)), genres.get(random.nextInt(5)))));
+        }
+        users = new ArrayList<>();
+        for (int u = 0; u < 30; u++) {
+            users.add(new User("User", "U" + u, new ArrayList<>(Arrays.asList("M" + random.nextInt(40)))));
+        }
+        recommendationSystem = new RecommendationSystem(users, movies);
+
+        int nextUser = users.size();
+        int nextMovie = movies.size();
+        for (int step = 0; step < 300; step++) {
+            List<User> current = new ArrayList<>();
+            recommendationSystem.getSingleRecommendations().forEach(recommendation -> current.add(recommendation.getUser()));
+            MovieCatalog catalog = recommendationSystem.getCatalog();
+            switch (random.nextInt(4)) {
+                case 0:
+                    recommendationSystem.addUser(new User("User", "U" + nextUser++,
+                            Arrays.asList(catalog.getMovie(random.nextInt(catalog.size())).getMovieId())));
+                    break;
+                case 1:
+                    if (!current.isEmpty()) {
+                        assertTrue(recommendationSystem.removeUser(current.get(random.nextInt(current.size())).getUserId()));
+                    }
+                    break;
+                case 2:
+                    if (!current.isEmpty()) {
+                        recommendationSystem.addWatchedMovie(current.get(random.nextInt(current.size())).getUserId(),
+                                catalog.getMovie(random.nextInt(catalog.size())).getMovieId());
+                    }
+                    break;
+                default:
+                    // new genres too, and now and then an id a user already watched before it existed
+                    String movieId = random.nextInt(10) == 0 ? "X" + step : "M" + nextMovie++;
+                    recommendationSystem.addMovie(new Movie("Movie", movieId,
+                            Arrays.asList(genres.get(random.nextInt(genres.size())))));
+                    break;
+            }
+
+            List<User> updatedUsers = new ArrayList<>();
+            recommendationSystem.getSingleRecommendations().forEach(recommendation -> updatedUsers.add(recommendation.getUser()));
+            List<SingleRecommendation> expected = new RecommendationSystem(
+                    new MovieCatalog(recommendationSystem.getCatalog().getMovies()), updatedUsers).getSingleRecommendations();
+            List<SingleRecommendation> actual = recommendationSystem.getSingleRecommendations();
+            assertEquals(expected.size(), actual.size());
+            for (int u = 0; u < expected.size(); u++) {
+                assertEquals(expected.get(u).getMovies(), actual.get(u).getMovies(), "step " + step);
+            }
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testIncrementalUpdateErrors() {
+        setUp();
+        assertFalse(recommendationSystem.removeUser("00000000Z"));
+        assertThrows(IllegalArgumentException.class, () -> recommendationSystem.addWatchedMovie("00000000Z", "TG002"));
+        assertThrows(IllegalArgumentException.class, () -> recommendationSystem.addWatchedMovie("12345678X", "NON001"));
+        // watching a movie twice changes nothing
+        SingleRecommendation before = recommendationSystem.getSingleRecommendations().get(0);
+        assertSame(before, recommendationSystem.addWatchedMovie("12345678X", "TSR001"));
+    }
+
+    // only users sharing a genre with the new movie are recomputed
+    @Tag("unit-test")
+    @Test
+    public void testAddMovieRecomputesAffectedUsersOnly() {
+        setUp();
+        SingleRecommendation untouched = recommendationSystem.getSingleRecommendations().get(0);
+        assertEquals(2, recommendationSystem.addMovie(new Movie("Se7en", "S004", Arrays.asList("Crime"))));
+        assertEquals(0, recommendationSystem.addMovie(new Movie("Alien", "A005", Arrays.asList("Horror"))));
+        assertNotSame(untouched, recommendationSystem.getSingleRecommendations().get(0));
+        assertEquals(5, recommendationSystem.getCatalog().size());
+    }
+
+    // a user list that counts how many users are read from it, like an off-heap store decoding them
+    private static class CountingList extends AbstractList<User> {
+        private final List<User> users;
+        int reads;
+
+        CountingList(List<User> users) {
+            this.users = users;
+        }
+
+        @Override
+        public User get(int index) {
+            reads++;
+            return users.get(index);
+        }
+
+        @Override
+        public int size() {
+            return users.size();
+        }
+    }
+
+    // the caller's list is read in place, and copied only by the first update
+    @Tag("unit-test")
+    @Test
+    public void testUserListCopiedOnWrite() {
+        setUp();
+        CountingList counting = new CountingList(users);
+        RecommendationSystem engine = new RecommendationSystem(new MovieCatalog(movies), counting);
+        assertEquals(users.size(), counting.reads, "Each user read once, no copy");
+
+        engine.addUser(new User("Mona Adel", "11111111A", Arrays.asList("TG002")));
+        assertEquals(2, counting.size());
+        assertEquals(3, engine.getSingleRecommendations().size());
+        assertTrue(engine.removeUser("12345678X"));
+        assertEquals(2, users.size());
+        assertEquals("12345678X", users.get(0).getUserId());
+    }
+
+    // a list whose reads, once armed, wait until two threads have read, then pass
+    private static class MeetingList extends AbstractList<User> {
+        private final List<User> users;
+        private final CountDownLatch meeting = new CountDownLatch(2);
+        volatile boolean armed;
+
+        MeetingList(List<User> users) {
+            this.users = users;
+        }
+
+        @Override
+        public User get(int index) {
+            if (armed) {
+                meeting.countDown();
+                try {
+                    if (!meeting.await(10, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("Lookups did not run at the same time");
+                    }
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return users.get(index);
+        }
+
+        @Override
+        public int size() {
+            return users.size();
+        }
+    }
+
+    // lookups of a lazy engine do not wait for each other, memoized or not
+    @Tag("unit-test")
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        setUp();
+        MeetingList meeting = new MeetingList(users);
+        RecommendationSystem lazy = RecommendationSystem.lazy(new MovieCatalog(movies), meeting);
+        assertNull(lazy.recommendFor("00000000Z"));
+        meeting.armed = true;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<SingleRecommendation> first = executor.submit(() -> lazy.recommendFor("12345678X"));
+            Future<SingleRecommendation> second = executor.submit(() -> lazy.computeFor("87654321W"));
+            assertEquals(recommendationSystem.recommendFor("12345678X").getMovies(), first.get(20, TimeUnit.SECONDS).getMovies());
+            assertEquals(recommendationSystem.recommendFor("87654321W").getMovies(), second.get(20, TimeUnit.SECONDS).getMovies());
+        } finally {
+            executor.shutdownNow();
+        }
+        meeting.armed = false;
+        assertEquals(1, lazy.computedUsers());
+        assertSame(lazy.recommendFor("12345678X"), lazy.recommendFor("12345678X"));
+
+        // many threads on the memoized and the missing users, with the eager output
+        List<Future<SingleRecommendation>> lookups = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                String userId = users.get(i % 2).getUserId();
+                boolean memoized = i % 3 != 0;
+                lookups.add(pool.submit(() -> memoized ? lazy.recommendFor(userId) : lazy.computeFor(userId)));
+            }
+            for (int i = 0; i < lookups.size(); i++) {
+                assertEquals(recommendationSystem.getSingleRecommendations().get(i % 2).getMovies(),
+                        lookups.get(i).get(20, TimeUnit.SECONDS).getMovies());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // a lazy engine computes a user only when asked, and gives the eager engine's output
+    @Tag("unit-test")
+    @Test
+    public void testLazyRecommendFor() {
+        setUp();
+        RecommendationSystem lazy = RecommendationSystem.lazy(new MovieCatalog(movies), users);
+        assertTrue(lazy.isLazy());
+        assertEquals(0, lazy.computedUsers());
+
+        SingleRecommendation recommendation = lazy.recommendFor("87654321W");
+        assertEquals(1, lazy.computedUsers());
+        assertSame(recommendation, lazy.recommendFor("87654321W"), "Memoized");
+        assertEquals(recommendationSystem.recommendFor("87654321W").getMovies(), recommendation.getMovies());
+        assertNull(lazy.recommendFor("00000000Z"));
+
+        List<SingleRecommendation> all = lazy.getSingleRecommendations();
+        assertEquals(2, lazy.computedUsers());
+        for (int u = 0; u < users.size(); u++) {
+            assertEquals(recommendationSystem.getSingleRecommendations().get(u).getMovies(), all.get(u).getMovies());
+        }
+    }
+
+    // updates on a lazy engine only forget what they affect
+    @Tag("unit-test")
+    @Test
+    public void testLazyUpdates() {
+        setUp();
+        RecommendationSystem lazy = RecommendationSystem.lazy(new MovieCatalog(movies), users);
+        lazy.recommendFor("12345678X");
+        Movie se7en = new Movie("Se7en", "S004", Arrays.asList("Crime"));
+        assertEquals(1, lazy.addMovie(se7en));
+        assertEquals(0, lazy.computedUsers());
+        recommendationSystem.addMovie(se7en);
+
+        assertTrue(lazy.removeUser("12345678X"));
+        assertNull(lazy.addUser(new User("Hassan Ali", "12345678X", Arrays.asList("TSR001", "TDK003"))));
+        assertEquals(0, lazy.computedUsers());
+        assertEquals(recommendationSystem.recommendFor("87654321W").getMovies(), lazy.recommendFor("87654321W").getMovies());
+        assertEquals(recommendationSystem.recommendFor("12345678X").getMovies(), lazy.recommendFor("12345678X").getMovies());
+        assertEquals("Ali Mohamed", lazy.getSingleRecommendations().get(0).getUser().getUserName());
+
+        // a watched movie forgets the user's recommendation, computed again with the new history
+        assertNull(lazy.addWatchedMovie("87654321W", "TSR001"));
+        assertEquals(1, lazy.computedUsers());
+        recommendationSystem.addWatchedMovie("87654321W", "TSR001");
+        assertEquals(recommendationSystem.recommendFor("87654321W").getMovies(), lazy.recommendFor("87654321W").getMovies());
+    }
+
+    // streaming a lazy engine keeps no recommendation and gives the eager output in user order
+    @Tag("unit-test")
+    @Test
+    public void testLazyForEachKeepsNothing() {
+        setUp();
+        RecommendationSystem lazy = RecommendationSystem.lazy(new MovieCatalog(movies), users);
+        SingleRecommendation kept = lazy.recommendFor("87654321W");
+        List<SingleRecommendation> streamed = new ArrayList<>();
+        lazy.forEachRecommendation(streamed::add);
+        assertEquals(1, lazy.computedUsers());
+        assertSame(kept, streamed.get(1));
+        for (int u = 0; u < users.size(); u++) {
+            assertEquals(recommendationSystem.getSingleRecommendations().get(u).getMovies(), streamed.get(u).getMovies());
+        }
+    }
+
+    // building a lazy engine reads no user
+    @Tag("unit-test")
+    @Test
+    public void testLazyBuildReadsNoUser() {
+        setUp();
+        CountingList counting = new CountingList(users);
+        RecommendationSystem lazy = RecommendationSystem.lazy(new MovieCatalog(movies), counting);
+        assertEquals(0, counting.reads);
+        assertEquals(recommendationSystem.recommendFor("87654321W").getMovies(), lazy.recommendFor("87654321W").getMovies());
+    }
+
+    // users meeting the same genres in the same order share one candidate list
+    @Tag("unit-test")
+    @Test
+    public void testCandidatesMemoizedPerGenreProfile() {
+        setUp();
+        users = Arrays.asList(
+                new User("Hassan Ali", "12345678X", Arrays.asList("TG002")),
+                new User("Ali Mohamed", "87654321W", Arrays.asList("TDK003", "TG002")),
+                new User("Mona Adel", "11111111A", Arrays.asList("TSR001")),
+                new User("Omar Adel", "22222222B", Arrays.asList("TG002", "TSR001"))
+        );
+        recommendationSystem = new RecommendationSystem(users, movies);
+        // Crime, Drama | Action, Crime, Drama | Drama
+        assertEquals(3, recommendationSystem.memoizedProfiles());
+        List<SingleRecommendation> recs = recommendationSystem.getSingleRecommendations();
+        for (int u = 0; u < users.size(); u++) {
+            assertEquals(nestedScan(users.get(u), movies), recs.get(u).getMovies());
+        }
+
+        recommendationSystem.addMovie(new Movie("Alien", "A004", Arrays.asList("Horror")));
+        assertEquals(0, recommendationSystem.memoizedProfiles(), "A new movie changes the candidates");
+    }
+
+    // the original quadratic algorithm, kept as the reference for the expected output
+    private static List<Movie> nestedScan(User user, List<Movie> movies) {
+        List<String> userGenres = new ArrayList<>();
+        user.getMovieIds().forEach(movieId -> movies.forEach(movie -> {
+            if (movieId.equals(movie.getMovieId())) {
+                userGenres.addAll(movie.getMovieGenres());
+            }
+        }));
+        List<Movie> userMovies = new ArrayList<>();
+        userGenres.forEach(genre -> movies.forEach(movie -> {
+            if (movie.getMovieGenres().contains(genre) && !userMovies.contains(movie)
+                    && !user.getMovieIds().contains(movie.getMovieId())) {
+                userMovies.add(movie);
+            }
+        }));
+        return userMovies;
+    }
+
 }
@@ -0,0 +1,77 @@
+package recommendation.engine;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.SingleRecommendation;
+import recommendation.model.User;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecommendersTest {
+
+    private final MovieCatalog catalog = new MovieCatalog(Arrays.asList(
+            new Movie("The Shawshank Redemption", "TSR001", Arrays.asList("Drama")),
+            new Movie("The Godfather", "TG002", Arrays.asList("Crime", "Drama")),
+            new Movie("The Dark Knight", "TDK003", Arrays.asList("Action", "Crime", "Drama"))
+    ));
+
+    private final List<User> users = Arrays.asList(
+            new User("Hassan Ali", "12345678X", Arrays.asList("TSR001", "TDK003")),
+            new User("Ali Mohamed", "87654321W", Arrays.asList("TG002"))
+    );
+
+    @Tag("unit-test")
+    @Test
+    public void testProvidersAreDiscovered() {
+        assertEquals(List.of("genre", "genre-parallel", "ranked", "co-occurrence", "minhash"), Recommenders.names());
+        assertInstanceOf(RecommendationSystem.class, Recommenders.provider("genre").create(catalog, users, 0));
+        assertInstanceOf(RecommendationSystem.class, Recommenders.provider("genre-parallel").create(catalog, users, 0));
+        List<SingleRecommendation> sequential = Recommenders.provider("genre").create(catalog, users, 0).getSingleRecommendations();
+        List<SingleRecommendation> parallel = Recommenders.provider("genre-parallel").create(catalog, users, 0).getSingleRecommendations();
+        for (int u = 0; u < users.size(); u++) {
+            assertEquals(sequential.get(u).getMovies(), parallel.get(u).getMovies());
+        }
+        assertInstanceOf(RankedRecommendationSystem.class, Recommenders.provider("ranked").create(catalog, users, 0));
+        assertInstanceOf(CoOccurrenceRecommendationSystem.class, Recommenders.provider("co-occurrence").create(catalog, users, 0));
+        assertInstanceOf(MinHashRecommendationSystem.class, Recommenders.provider("minhash").create(catalog, users, 0));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testUnknownEngine() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Recommenders.provider("magic"));
+        assertTrue(e.getMessage().startsWith("Engine {magic} does not exist"));
+    }
+
+    // every engine answers the batch lookup like the single one, in the order asked
+    @Tag("unit-test")
+    @Test
+    public void testBatchRecommendFor() {
+        for (String name : Recommenders.names()) {
+            Recommender engine = Recommenders.provider(name).create(catalog, users, 1);
+            List<String> userIds = List.of("87654321W", "00000000Z", "12345678X");
+            assertEquals(Arrays.asList(engine.recommendFor("87654321W"), null, engine.recommendFor("12345678X")),
+                    engine.recommendFor(userIds), name);
+        }
+    }
+
+    // the neighbour search of co-occurrence and minhash can be set, the other providers ignore it
+    @Tag("unit-test")
+    @Test
+    public void testNeighbourSettings() {
+        Recommender minHash = Recommenders.provider("minhash", 1, 32, 1).create(catalog, users, 0);
+        assertInstanceOf(MinHashRecommendationSystem.class, minHash);
+        assertTrue(((MinHashRecommendationSystem) minHash).getNeighbours("12345678X").size() <= 1);
+        assertInstanceOf(CoOccurrenceRecommendationSystem.class,
+                Recommenders.provider("co-occurrence", 5, 0, 0).create(catalog, users, 0));
+        assertEquals("ranked", Recommenders.provider("ranked", 5, 8, 2).name());
+        assertThrows(IllegalArgumentException.class, () -> Recommenders.provider("minhash", -1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new Recommenders.MinHash(0, 4, 20));
+        assertThrows(IllegalArgumentException.class, () -> new Recommenders.CoOccurrence(0));
+    }
+}
@@ -0,0 +1,191 @@
+package recommendation.generator;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import recommendation.generator.DatasetGenerator.InjectedError;
+import recommendation.generator.DatasetGenerator.Popularity;
+import recommendation.parser.MovieParser;
+import recommendation.parser.UserParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatasetGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MovieParser writeAndParseMovies(DatasetGenerator generator) throws IOException {
+        Path movies = tempDir.resolve("movies.txt");
+        generator.writeMovies(movies);
+        return new MovieParser(movies.toString());
+    }
+
+    private UserParser writeAndParseUsers(DatasetGenerator generator) throws IOException {
+        Path users = tempDir.resolve("users.txt");
+        generator.writeUsers(users);
+        return new UserParser(users.toString(), writeAndParseMovies(generator).getMovies());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testGeneratedFilesAreValid() throws IOException {
+        DatasetGenerator generator = new DatasetGenerator(7).movieCount(1000).userCount(2000)
+                .genresPerMovie(1, 4).watchedPerUser(1, 20).popularity(Popularity.ZIPF, 1.1);
+        MovieParser movieParser = writeAndParseMovies(generator);
+        assertTrue(movieParser.success(), "Generated movies should parse: " + movieParser.getError());
+        assertEquals(1000, movieParser.getMovies().size());
+
+        UserParser userParser = writeAndParseUsers(generator);
+        assertTrue(userParser.success(), "Generated users should parse: " + userParser.getError());
+        assertEquals(2000, userParser.getUsers().size());
+        userParser.getUsers().forEach(user -> {
+            assertEquals(9, user.getUserId().length());
+            assertTrue(user.getMovieIds().size() >= 1 && user.getMovieIds().size() <= 20);
+        });
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testSameSeedSameFiles() throws IOException {
+        Path first = tempDir.resolve("first.txt");
+        Path second = tempDir.resolve("second.txt");
+        new DatasetGenerator(3).userCount(500).writeUsers(first);
+        new DatasetGenerator(3).userCount(500).writeUsers(second);
+        assertEquals(Files.readString(first), Files.readString(second));
+
+        new DatasetGenerator(4).userCount(500).writeUsers(second);
+        assertNotEquals(Files.readString(first), Files.readString(second));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testZipfPopularityIsSkewed() {
+        DatasetGenerator.ZipfSampler sampler = new DatasetGenerator.ZipfSampler(100, 1.2);
+        Random random = new Random(1);
+        int[] counts = new int[100];
+        for (int i = 0; i < 100_000; i++) {
+            counts[sampler.sample(random)]++;
+        }
+        assertTrue(counts[0] > 10 * counts[50], "The first rank should dominate");
+
+        DatasetGenerator.ZipfSampler uniform = new DatasetGenerator.ZipfSampler(100, 0);
+        int[] uniformCounts = new int[100];
+        for (int i = 0; i < 100_000; i++) {
+            uniformCounts[uniform.sample(random)]++;
+        }
+        assertTrue(uniformCounts[0] < 2 * uniformCounts[50], "A skew of 0 should be uniform");
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testInjectedMovieErrors() throws IOException {
+        assertTrue(writeAndParseMovies(new DatasetGenerator(1).injectError(InjectedError.MOVIE_TITLE, 5))
+                .getError().startsWith("ERROR: Movie Title {"));
+        assertTrue(writeAndParseMovies(new DatasetGenerator(1).injectError(InjectedError.MOVIE_ID_LETTERS, 5))
+                .getError().startsWith("ERROR: Movie Id letters {Q"));
+        assertEquals("ERROR: Movie Id numbers {000} are repeated",
+                writeAndParseMovies(new DatasetGenerator(1).injectError(InjectedError.MOVIE_ID_REPEATED, 5)).getError());
+        assertTrue(writeAndParseMovies(new DatasetGenerator(1).injectError(InjectedError.MOVIE_GENRE, 5))
+                .getError().matches("ERROR: Movie Genre \\{[A-Za-z ]+7} is wrong"));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testInjectedUserErrors() throws IOException {
+        assertTrue(writeAndParseUsers(new DatasetGenerator(1).injectError(InjectedError.USER_NAME, 5))
+                .getError().startsWith("ERROR: User Name {"));
+        assertTrue(writeAndParseUsers(new DatasetGenerator(1).injectError(InjectedError.USER_ID, 5))
+                .getError().startsWith("ERROR: User Id {"));
+        assertTrue(writeAndParseUsers(new DatasetGenerator(1).injectError(InjectedError.USER_ID_REPEATED, 5))
+                .getError().endsWith("} is repeated"));
+        assertEquals("ERROR: Movie Id {x000} does not exist",
+                writeAndParseUsers(new DatasetGenerator(1).injectError(InjectedError.UNKNOWN_MOVIE_ID, 5)).getError());
+        assertTrue(writeAndParseUsers(new DatasetGenerator(1).injectError(InjectedError.MISSING_MOVIE_IDS, 5))
+                .getError().startsWith("ERROR: Missing movie Ids for user {"));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testEveryInjectedErrorIsWritten() throws IOException {
+        Path clean = tempDir.resolve("clean.txt");
+        Path injected = tempDir.resolve("injected.txt");
+        new DatasetGenerator(2).movieCount(10).writeMovies(clean);
+        new DatasetGenerator(2).movieCount(10)
+                .injectError(InjectedError.MOVIE_ID_REPEATED, 1)
+                .injectError(InjectedError.MOVIE_TITLE, 0)
+                .injectError(InjectedError.MOVIE_GENRE, 9)
+                .writeMovies(injected);
+        assertEquals(3, changedRecords(clean, injected));
+
+        new DatasetGenerator(2).userCount(10).writeUsers(clean);
+        new DatasetGenerator(2).userCount(10)
+                .injectError(InjectedError.USER_ID_REPEATED, 1)
+                .injectError(InjectedError.USER_NAME, 0)
+                .injectError(InjectedError.UNKNOWN_MOVIE_ID, 4)
+                .injectError(InjectedError.MISSING_MOVIE_IDS, 9)
+                .writeUsers(injected);
+        assertEquals(4, changedRecords(clean, injected));
+    }
+
+    private static int changedRecords(Path clean, Path injected) throws IOException {
+        List<String> cleanLines = Files.readAllLines(clean);
+        List<String> injectedLines = Files.readAllLines(injected);
+        assertEquals(cleanLines.size(), injectedLines.size());
+        int changed = 0;
+        for (int i = 0; i < cleanLines.size(); i += 2) {
+            if (!cleanLines.get(i).equals(injectedLines.get(i)) || !cleanLines.get(i + 1).equals(injectedLines.get(i + 1))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testInjectedErrorsThatCannotBeWritten() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new DatasetGenerator(1).injectError(InjectedError.MOVIE_ID_REPEATED, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new DatasetGenerator(1).injectError(InjectedError.USER_ID_REPEATED, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new DatasetGenerator(1).injectError(InjectedError.USER_NAME, -1));
+        assertThrows(IllegalArgumentException.class, () -> new DatasetGenerator(1)
+                .injectError(InjectedError.USER_NAME, 3).injectError(InjectedError.USER_ID, 3));
+        assertThrows(IllegalArgumentException.class, () -> new DatasetGenerator(1).movieCount(10)
+                .injectError(InjectedError.MOVIE_TITLE, 10).writeMovies(tempDir.resolve("movies.txt")));
+        assertThrows(IllegalArgumentException.class, () -> new DatasetGenerator(1).userCount(10)
+                .injectError(InjectedError.USER_ID, 10).writeUsers(tempDir.resolve("users.txt")));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testParseRejectsInvalidValues() {
+        assertDoesNotThrow(() -> DatasetGenerator.parse(new String[]{"out", "--seed=-3", "--movies=1000", "--users=0",
+                "--genres-per-movie=1-2", "--genre-skew=0.5", "--watched=2-5", "--zipf=1.1", "--error=USER_ID@500"}));
+
+        assertEquals("Invalid value {abc} for --movies, expected a number from 1 to 1000", assertThrows(
+                IllegalArgumentException.class, () -> DatasetGenerator.parse(new String[]{"out", "--movies=abc"})).getMessage());
+        assertEquals("Invalid value {-5} for --users, expected a number from 0 to 99999999", assertThrows(
+                IllegalArgumentException.class, () -> DatasetGenerator.parse(new String[]{"out", "--users=-5"})).getMessage());
+        assertEquals("Invalid value {x} for --seed, expected a number", assertThrows(
+                IllegalArgumentException.class, () -> DatasetGenerator.parse(new String[]{"out", "--seed=x"})).getMessage());
+        for (String arg : new String[]{"--watched=5", "--watched=5-2", "--watched=0-2", "--genres-per-movie=-1-2",
+                "--zipf=-1", "--genre-skew=NaN", "--error=USER_ID", "--error=TYPO@3", "--error=USER_ID@-1",
+                "--error=USER_ID_REPEATED@0", "--colour=red"}) {
+            assertThrows(IllegalArgumentException.class, () -> DatasetGenerator.parse(new String[]{"out", arg}), arg);
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testCatalogCappedByIdNumbers() {
+        assertThrows(IllegalArgumentException.class, () -> new DatasetGenerator(1).movieCount(1001));
+    }
+}
@@ -0,0 +1,48 @@
+package recommendation.log;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogTest {
+
+    @AfterEach
+    public void resetLevel() {
+        Log.setLevel(Log.Level.INFO);
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testDefaultLevelHidesDebug() {
+        assertEquals(Log.Level.INFO, Log.getLevel());
+        assertTrue(Log.isEnabled(Log.Level.ERROR));
+        assertTrue(Log.isEnabled(Log.Level.INFO));
+        assertFalse(Log.isEnabled(Log.Level.DEBUG));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testDisabledMessagesAreNotBuilt() {
+        AtomicInteger built = new AtomicInteger();
+        Log.setLevel(Log.Level.ERROR);
+        Log.info(() -> "info " + built.incrementAndGet());
+        Log.debug(() -> "debug " + built.incrementAndGet());
+        assertEquals(0, built.get());
+
+        Log.setLevel(Log.Level.DEBUG);
+        Log.debug(() -> "debug " + built.incrementAndGet());
+        assertEquals(1, built.get());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testOffDisablesEverything() {
+        Log.setLevel(Log.Level.OFF);
+        assertFalse(Log.isEnabled(Log.Level.ERROR));
+        assertFalse(Log.isEnabled(Log.Level.OFF));
+    }
+}
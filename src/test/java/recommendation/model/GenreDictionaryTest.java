@@ -0,0 +1,38 @@
+package recommendation.model;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GenreDictionaryTest {
+
+    @Tag("unit-test")
+    @Test
+    public void testCodesInFirstSeenOrder() {
+        GenreDictionary genres = new GenreDictionary();
+        assertEquals(0, genres.encode("Drama"));
+        assertEquals(1, genres.encode("Crime"));
+        assertEquals(0, genres.encode("Drama"));
+        assertEquals(2, genres.size());
+        assertEquals(1, genres.codeOf("Crime"));
+        assertEquals(-1, genres.codeOf("Horror"));
+        assertEquals("Crime", genres.genreOf(1));
+        assertEquals(List.of("Drama", "Crime"), genres.getGenres());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testWords() {
+        GenreDictionary genres = new GenreDictionary();
+        assertEquals(1, genres.words());
+        for (int i = 0; i < 64; i++) {
+            genres.encode("Genre" + i);
+        }
+        assertEquals(1, genres.words());
+        genres.encode("Genre64");
+        assertEquals(2, genres.words());
+    }
+}
@@ -0,0 +1,119 @@
+package recommendation.model;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MovieCatalogTest {
+
+    private final List<Movie> movies = Arrays.asList(
+            new Movie("The Shawshank Redemption", "TSR001", Arrays.asList("Drama")),
+            new Movie("The Godfather", "TG002", Arrays.asList("Crime", "Drama")),
+            new Movie("The Dark Knight", "TDK003", Arrays.asList("Action", "Crime", "Drama"))
+    );
+
+    @Tag("unit-test")
+    @Test
+    public void testLookupById() {
+        MovieCatalog catalog = new MovieCatalog(movies);
+        assertEquals(3, catalog.size());
+        assertSame(movies.get(1), catalog.getMovie("TG002"));
+        assertEquals(2, catalog.positionOf("TDK003"));
+        assertTrue(catalog.containsMovie("TSR001"));
+        assertFalse(catalog.containsMovie("NON001"));
+        assertNull(catalog.getMovie("NON001"));
+        assertEquals(-1, catalog.positionOf("NON001"));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testGenrePositionsInCatalogOrder() {
+        MovieCatalog catalog = new MovieCatalog(movies);
+        assertArrayEquals(new int[]{0, 1, 2}, catalog.positionsOfGenre("Drama"));
+        assertArrayEquals(new int[]{1, 2}, catalog.positionsOfGenre("Crime"));
+        assertArrayEquals(new int[]{2}, catalog.positionsOfGenre("Action"));
+        assertEquals(0, catalog.positionsOfGenre("Horror").length);
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testNullMovies() {
+        MovieCatalog catalog = new MovieCatalog(null);
+        assertEquals(0, catalog.size());
+        assertFalse(catalog.containsMovie("TSR001"));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testGenreCodesAndMasks() {
+        MovieCatalog catalog = new MovieCatalog(movies);
+        GenreDictionary genres = catalog.getGenres();
+        assertEquals(List.of("Drama", "Crime", "Action"), genres.getGenres());
+        assertEquals(1, catalog.genreWords());
+        assertArrayEquals(new int[]{2, 1, 0}, catalog.genreCodes(2));
+        assertArrayEquals(new int[]{1, 2}, catalog.positionsOfGenre(genres.codeOf("Crime")));
+
+        long crime = 1L << genres.codeOf("Crime");
+        assertFalse(catalog.hasAnyGenre(0, new long[]{crime}));
+        assertTrue(catalog.hasAnyGenre(1, new long[]{crime}));
+        assertFalse(catalog.hasAnyGenre(2, new long[]{0}));
+    }
+
+    // a dictionary filled by the parser keeps its codes, unknown genres are appended
+    @Tag("unit-test")
+    @Test
+    public void testSharedDictionary() {
+        GenreDictionary genres = new GenreDictionary();
+        genres.encode("Action");
+        MovieCatalog catalog = new MovieCatalog(movies, genres);
+        assertSame(genres, catalog.getGenres());
+        assertEquals(List.of("Action", "Drama", "Crime"), genres.getGenres());
+        assertArrayEquals(new int[]{2}, catalog.positionsOfGenre(0));
+    }
+
+    // more than 64 genres spill over several words per mask
+    @Tag("unit-test")
+    @Test
+    public void testWideGenreMasks() {
+        List<Movie> wide = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            wide.add(new Movie("Movie " + i, "M" + i, Arrays.asList("Genre" + i, "Common")));
+        }
+        MovieCatalog catalog = new MovieCatalog(wide);
+        assertEquals(2, catalog.genreWords());
+        int code = catalog.getGenres().codeOf("Genre90");
+        long[] mask = new long[2];
+        mask[code >>> 6] |= 1L << code;
+        assertTrue(catalog.hasAnyGenre(90, mask));
+        assertFalse(catalog.hasAnyGenre(89, mask));
+        assertEquals(100, catalog.positionsOfGenre("Common").length);
+    }
+
+    // an extended catalog keeps every position, the original is left unchanged
+    @Tag("unit-test")
+    @Test
+    public void testWithMovie() {
+        MovieCatalog catalog = new MovieCatalog(movies);
+        Movie alien = new Movie("Alien", "A004", Arrays.asList("Horror", "Drama"));
+        MovieCatalog extended = catalog.withMovie(alien);
+        assertEquals(3, catalog.size());
+        assertEquals(-1, catalog.getGenres().codeOf("Horror"));
+        assertEquals(4, extended.size());
+        assertSame(alien, extended.getMovie("A004"));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, extended.positionsOfGenre("Drama"));
+        assertArrayEquals(new int[]{3}, extended.positionsOfGenre("Horror"));
+
+        assertTrue(catalog.isPrefixOf(extended));
+        assertTrue(extended.isPrefixOf(extended));
+        assertFalse(extended.isPrefixOf(catalog));
+        // a second extension of the same catalog is not a prefix of the first
+        MovieCatalog other = catalog.withMovie(new Movie("Heat", "H005", Arrays.asList("Crime")));
+        assertFalse(other.isPrefixOf(extended.withMovie(alien)));
+        assertFalse(new MovieCatalog(movies).isPrefixOf(extended));
+    }
+}
@@ -0,0 +1,104 @@
+package recommendation.model;
+
+import recommendation.engine.RecommendationSystem;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapUserStoreTest {
+
+    private final MovieCatalog catalog = new MovieCatalog(Arrays.asList(
+            new Movie("The Shawshank Redemption", "TSR001", Arrays.asList("Drama")),
+            new Movie("The Godfather", "TG002", Arrays.asList("Crime", "Drama")),
+            new Movie("The Dark Knight", "TDK003", Arrays.asList("Action", "Crime", "Drama"))
+    ));
+
+    @Tag("unit-test")
+    @Test
+    public void testUsersReadBack() {
+        OffHeapUserStore store = new OffHeapUserStore(catalog);
+        store.add(new User("Hassan Ali", "12345678X", Arrays.asList("TSR001", "TDK003")));
+        store.add(new User("Ali Mohamed", "87654321W", catalog, new int[]{1}));
+
+        assertEquals(2, store.size());
+        assertEquals(3, store.historySize());
+        User user = store.get(0);
+        assertEquals("Hassan Ali", user.getUserName());
+        assertEquals("12345678X", user.getUserId());
+        assertEquals(List.of("TSR001", "TDK003"), user.getMovieIds());
+        IntBuffer positions = user.getMoviePositions(catalog);
+        assertTrue(positions.isDirect(), "History is read in place");
+        assertEquals(IntBuffer.wrap(new int[]{0, 2}), positions);
+        assertEquals(List.of("TG002"), store.get(1).getMovieIds());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(2));
+    }
+
+    // the columns are reallocated as they fill up, users added before stay readable
+    @Tag("unit-test")
+    @Test
+    public void testGrowth() {
+        OffHeapUserStore store = new OffHeapUserStore(catalog);
+        List<User> users = new ArrayList<>();
+        for (int u = 0; u < 5000; u++) {
+            users.add(new User("Ünïcode User", String.format("%08dX", u), catalog, new int[]{u % 3, (u + 1) % 3}));
+        }
+        User first = null;
+        for (User user : users) {
+            store.add(user);
+            if (first == null) {
+                first = store.get(0);
+            }
+        }
+        assertEquals(users.toString(), store.toString());
+        assertEquals(users.get(0).getMovieIds(), first.getMovieIds());
+        assertTrue(store.offHeapBytes() >= 4L * store.historySize());
+    }
+
+    // past 2^28 ints the doubling is clamped to the largest buffer, and beyond it the store is full
+    @Tag("unit-test")
+    @Test
+    public void testGrowthBoundary() {
+        assertEquals(8, OffHeapUserStore.grownCapacity(5, 4, OffHeapUserStore.MAX_INTS));
+        assertEquals(OffHeapUserStore.MAX_INTS, OffHeapUserStore.grownCapacity((1 << 28) + 1, 1 << 28, OffHeapUserStore.MAX_INTS));
+        assertEquals(OffHeapUserStore.MAX_BYTES, OffHeapUserStore.grownCapacity((1L << 30) + 1, 1 << 30, OffHeapUserStore.MAX_BYTES));
+        assertEquals(OffHeapUserStore.MAX_INTS, OffHeapUserStore.grownCapacity(OffHeapUserStore.MAX_INTS, OffHeapUserStore.MAX_INTS - 1,
+                OffHeapUserStore.MAX_INTS));
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> OffHeapUserStore.grownCapacity(OffHeapUserStore.MAX_INTS + 1L, OffHeapUserStore.MAX_INTS, OffHeapUserStore.MAX_INTS));
+        assertTrue(e.getMessage().startsWith("Off-heap user store is full"));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testUnknownMovieRejected() {
+        OffHeapUserStore store = new OffHeapUserStore(catalog);
+        assertThrows(IllegalArgumentException.class,
+                () -> store.add(new User("Hassan Ali", "12345678X", Arrays.asList("TSR001", "NON001"))));
+        assertEquals(0, store.size());
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapUserStore(null));
+    }
+
+    // the engine gives the same recommendations whether users live on or off the heap
+    @Tag("unit-test")
+    @Test
+    public void testRecommendationsMatchHeapUsers() {
+        List<User> users = Arrays.asList(
+                new User("Hassan Ali", "12345678X", Arrays.asList("TSR001", "TDK003")),
+                new User("Ali Mohamed", "87654321W", Arrays.asList("TG002")));
+        OffHeapUserStore store = new OffHeapUserStore(catalog);
+        store.addAll(users);
+
+        var heap = new RecommendationSystem(catalog, users).getSingleRecommendations();
+        var offHeap = new RecommendationSystem(catalog, store).getSingleRecommendations();
+        for (int u = 0; u < users.size(); u++) {
+            assertEquals(heap.get(u).getMovies(), offHeap.get(u).getMovies());
+        }
+    }
+}
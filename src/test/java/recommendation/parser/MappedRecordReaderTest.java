@@ -0,0 +1,90 @@
+package recommendation.parser;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedRecordReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<String> readMapped(String content, long windowSize) throws IOException {
+        Path file = tempDir.resolve("input.txt");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>();
+        try (RecordReader reader = new MappedRecordReader(new RandomAccessFile(file.toFile(), "r"), 0, -1, windowSize)) {
+            while (reader.nextLine()) {
+                lines.add(Arrays.toString(reader.fields()));
+            }
+        }
+        return lines;
+    }
+
+    private List<String> readBuffered(String content) throws IOException {
+        Path file = tempDir.resolve("input.txt");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>();
+        try (RecordReader reader = new BufferedRecordReader(file.toString())) {
+            while (reader.nextLine()) {
+                lines.add(Arrays.toString(reader.fields()));
+            }
+        }
+        return lines;
+    }
+
+    // split(", ") corner cases: empty lines, trailing separators, separators only, commas without space
+    @Tag("unit-test")
+    @Test
+    public void testSplitSemantics() throws IOException {
+        String content = "The Godfather, TG002\n\n, \nA, , B, , \n, A\nA,B, C\n,\nlast line, no newline";
+        assertEquals(readBuffered(content), readMapped(content, 1 << 20));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testLineTerminators() throws IOException {
+        String content = "a, b\r\nc\rd, e\n\r\nf\r";
+        assertEquals(readBuffered(content), readMapped(content, 1 << 20));
+    }
+
+    // a tiny window forces re-mapping in the middle of lines and between '\r' and '\n'
+    @Tag("unit-test")
+    @Test
+    public void testSlidingWindow() throws IOException {
+        String content = "The Shawshank Redemption, TSR001\r\nDrama\r\nThe Godfather, TG002\r\nCrime, Drama\r\n";
+        for (int window = 40; window <= 64; window++) {
+            assertEquals(readBuffered(content), readMapped(content, window), "window " + window);
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testLineLongerThanWindow() throws IOException {
+        assertThrows(IOException.class, () -> readMapped("a very long line that never ends\n", 8));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testMissingFieldThrowsLikeArrayIndexing() throws IOException {
+        Path file = tempDir.resolve("input.txt");
+        Files.write(file, "Hassan Ali\n".getBytes(StandardCharsets.UTF_8));
+        try (RecordReader reader = RecordReader.open(file.toString(), ReadMode.MAPPED)) {
+            assertTrue(reader.nextLine());
+            assertEquals("Hassan Ali", reader.field(0));
+            assertThrows(ArrayIndexOutOfBoundsException.class, () -> reader.field(1));
+            assertFalse(reader.nextLine());
+        }
+    }
+}
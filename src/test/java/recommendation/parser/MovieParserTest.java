@@ -3,7 +3,12 @@ package recommendation.parser;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import recommendation.model.Movie;
+
+import java.io.File;
 import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class MovieParserTest {
 
@@ -209,4 +214,58 @@ public class MovieParserTest {
         assertFalse(parser.success(), "Movie Parser failed");
         assertNotNull(parser.getError(), "Error parsing");
     }
+
+    // genres are encoded while parsing, codes in file order
+    @Tag("unit-test")
+    @Test
+    public void parseValidMoviesGenreDictionary() {
+        var parser = new MovieParser("src/test/resources/movies/valid_movies.txt");
+        assertTrue(parser.success(), "No error in valid movies file");
+        assertEquals(List.of("Drama", "Crime", "Action"), parser.getGenres().getGenres());
+    }
+
+    // streaming mode hands every movie to the consumer and keeps nothing
+    @Tag("unit-test")
+    @Test
+    public void parseValidMoviesStreaming() {
+        var filePath = "src/test/resources/movies/valid_movies.txt";
+        List<Movie> streamed = new ArrayList<>();
+        var parser = new MovieParser(filePath, streamed::add);
+        assertTrue(parser.success(), "No error in valid movies file");
+        assertEquals(3, streamed.size(), "3 movies streamed");
+        assertEquals(3, parser.getMovieCount(), "3 movies counted");
+        assertTrue(parser.getMovies().isEmpty(), "Streaming mode keeps no movies");
+        assertEquals("TSR001", streamed.get(0).getMovieId());
+    }
+
+    // the uniqueness check still runs after the last streamed record
+    @Tag("unit-test")
+    @Test
+    public void parseRepeatedMovieIdStreaming() {
+        var filePath = "src/test/resources/movies/repeated_movie_id.txt";
+        var parser = new MovieParser(filePath, movie -> { });
+        assertFalse(parser.success(), "Parser should not be successful");
+        assertEquals(new MovieParser(filePath).getError(), parser.getError(), "Same error as the list parser");
+    }
+
+    // the memory-mapped reader must accept and reject exactly what the buffered reader does
+    @Tag("unit-test")
+    @Test
+    public void parseAllFixturesMapped() {
+        File[] fixtures = new File("src/test/resources/movies").listFiles();
+        assertNotNull(fixtures);
+        for (File fixture : fixtures) {
+            var buffered = new MovieParser(fixture.getPath(), ReadMode.BUFFERED);
+            var mapped = new MovieParser(fixture.getPath(), ReadMode.MAPPED);
+            assertEquals(buffered.getError(), mapped.getError(), "Same error for " + fixture.getName());
+            assertEquals(buffered.getMovies().toString(), mapped.getMovies().toString(), "Same movies for " + fixture.getName());
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void parseMissingFileMapped() {
+        var parser = new MovieParser("non-existing/path/file.txt", ReadMode.MAPPED);
+        assertEquals("Movies file not found", parser.getError(), "Error message should indicate file not found");
+    }
 }
@@ -0,0 +1,99 @@
+package recommendation.parser;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ParallelUserParserTest {
+
+    private static List<Movie> movies;
+    private static ExecutorService executor;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void setup() {
+        movies = new MovieParser("src/test/resources/users/test_movies.txt").getMovies();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    public static void teardown() {
+        executor.shutdown();
+    }
+
+    private static void assertSameAsSequential(String filePath, long chunkSize) {
+        var sequential = new UserParser(filePath, movies);
+        var parallel = new ParallelUserParser(filePath, new MovieCatalog(movies), executor, chunkSize);
+        String context = filePath + " with chunks of " + chunkSize + " bytes";
+        assertEquals(sequential.getError(), parallel.getError(), "Same error for " + context);
+        assertEquals(sequential.getUsers().toString(), parallel.getUsers().toString(), "Same users for " + context);
+    }
+
+    // happy case
+    @Tag("unit-test")
+    @Test
+    public void parseValidUsers() {
+        var parser = new ParallelUserParser("src/test/resources/users/valid_users.txt", movies);
+        assertNull(parser.getError(), "No error in valid users file");
+        assertEquals(2, parser.getUsers().size(), "2 users parsed");
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void parseMissingFile() {
+        var parser = new ParallelUserParser("non-existing/path/file.txt", movies);
+        assertFalse(parser.success(), "Parser should not be successful");
+        assertEquals("Users file not found", parser.getError(), "Error message should indicate file not found");
+    }
+
+    // every cut position must land on a record start, whatever the chunk size
+    @Tag("unit-test")
+    @Test
+    public void parseAllFixturesWithSmallChunks() {
+        File[] fixtures = new File("src/test/resources/users").listFiles();
+        assertNotNull(fixtures);
+        for (File fixture : fixtures) {
+            for (long chunkSize = 1; chunkSize <= 48; chunkSize++) {
+                assertSameAsSequential(fixture.getPath(), chunkSize);
+            }
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void parseWindowsLineEndings() throws IOException {
+        Path file = tempDir.resolve("users.txt");
+        Files.writeString(file, "Hassan Ali, 12345678X\r\nTSR001, TDK003\r\nAli Mohamed, 87654321W\r\nTG002\r\n"
+                + "Sara Ahmed, 11223344Z\r\nTG002, TSR001\r\n");
+        for (long chunkSize = 1; chunkSize <= 64; chunkSize++) {
+            assertSameAsSequential(file.toString(), chunkSize);
+        }
+        assertEquals(3, new ParallelUserParser(file.toString(), new MovieCatalog(movies), executor, 7).getUsers().size());
+    }
+
+    // the first error in file order wins, even when a later chunk fails first
+    @Tag("unit-test")
+    @Test
+    public void parseReportsFirstErrorInFileOrder() throws IOException {
+        Path file = tempDir.resolve("users.txt");
+        Files.writeString(file, "Hassan Ali, 12345678X\nNON001\nAli Mohamed, 1234X\nTG002\n"
+                + "Sara Ahmed, 12345678X\nTG002\n");
+        var parser = new ParallelUserParser(file.toString(), new MovieCatalog(movies), executor, 8);
+        assertEquals("ERROR: Movie Id {NON001} does not exist", parser.getError());
+        assertEquals(new UserParser(file.toString(), movies).getUsers().toString(), parser.getUsers().toString());
+    }
+}
@@ -3,9 +3,13 @@ package recommendation.parser;
 import org.junit.jupiter.api.*;
 
 import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.OffHeapUserStore;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.File;
+import java.nio.IntBuffer;
 import java.util.List;
 
 public class UserParserTest {
@@ -226,4 +230,74 @@ public class UserParserTest {
                     "User should not have duplicate movie IDs");
         });
     }
+
+    // users keep their history as positions in the catalog they were checked against
+    @Tag("unit-test")
+    @Test
+    public void parseUsersAsCatalogPositions() {
+        MovieCatalog catalog = new MovieCatalog(movies);
+        var parser = new UserParser("src/test/resources/users/repeated_movie_ids.txt", catalog);
+        assertTrue(parser.success(), "Parser should be successful");
+        parser.getUsers().forEach(user -> {
+            IntBuffer positions = user.getMoviePositions(catalog);
+            assertSame(positions, user.getMoviePositions(catalog), "Positions are shared with the catalog it was built on");
+            assertEquals(user.getMovieIds().size(), positions.limit());
+            for (int i = 0; i < positions.limit(); i++) {
+                assertSame(catalog.getMovie(positions.get(i)).getMovieId(), user.getMovieIds().get(i));
+            }
+            assertEquals(positions, user.getMoviePositions(new MovieCatalog(movies)));
+        });
+    }
+
+    // off-heap storage accepts and rejects exactly what the heap storage does
+    @Tag("unit-test")
+    @Test
+    public void parseAllFixturesOffHeap() {
+        MovieCatalog catalog = new MovieCatalog(movies);
+        File[] fixtures = new File("src/test/resources/users").listFiles();
+        assertNotNull(fixtures);
+        for (File fixture : fixtures) {
+            var heap = new UserParser(fixture.getPath(), catalog, ReadMode.BUFFERED, UserStorage.HEAP);
+            var offHeap = new UserParser(fixture.getPath(), catalog, ReadMode.BUFFERED, UserStorage.OFF_HEAP);
+            assertEquals(heap.getError(), offHeap.getError(), fixture.getName());
+            assertInstanceOf(OffHeapUserStore.class, offHeap.getUsers(), fixture.getName());
+            assertEquals(heap.getUsers().toString(), offHeap.getUsers().toString(), fixture.getName());
+        }
+    }
+
+    // the memory-mapped reader must accept and reject exactly what the buffered reader does
+    @Tag("unit-test")
+    @Test
+    public void parseAllFixturesMapped() {
+        File[] fixtures = new File("src/test/resources/users").listFiles();
+        assertNotNull(fixtures);
+        for (File fixture : fixtures) {
+            var buffered = new UserParser(fixture.getPath(), movies, ReadMode.BUFFERED);
+            var mapped = new UserParser(fixture.getPath(), movies, ReadMode.MAPPED);
+            assertEquals(buffered.getError(), mapped.getError(), "Same error for " + fixture.getName());
+            assertEquals(buffered.getUsers().toString(), mapped.getUsers().toString(), "Same users for " + fixture.getName());
+        }
+    }
+
+    // the catalog index given to the parser is the one used for the existence checks
+    @Tag("unit-test")
+    @Test
+    public void parseWithSharedCatalog() {
+        var catalog = new MovieCatalog(movies);
+        var parser = new UserParser("src/test/resources/users/valid_users.txt", catalog);
+        assertTrue(parser.success(), "No error in valid users file");
+        assertEquals(2, parser.getUsers().size(), "2 users parsed");
+
+        var missing = new UserParser("src/test/resources/users/non_existent_movie_ids.txt", catalog);
+        assertEquals("ERROR: Movie Id {NON001} does not exist", missing.getError());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void parseNullCatalog() {
+        MovieCatalog catalog = null;
+        assertThrows(IllegalArgumentException.class, () -> {
+            new UserParser("src/test/resources/users/valid_users.txt", catalog);
+        }, "Throw Illegal Argument Exception");
+    }
 }
@@ -251,4 +251,51 @@ public class ValidationTest {
         });
         assertEquals("ERROR: Movie Id numbers {121} are repeated",validationException.getMessage());
     }
+
+    //movie id shorter than its three digits
+    @Tag("unit-test")
+    @Test
+    public void validateMovieIdShorterThanThreeCharacters() {
+        String movieTitle = "The Shawshank Redemption";
+        String movieId = "01";
+        ValidationException validationException = assertThrows(ValidationException.class,() -> {
+            Validation.movieIdValidation(movieId,movieTitle);
+        });
+        assertEquals("ERROR: Movie Id letters {"+movieId+"} are wrong",validationException.getMessage());
+    }
+
+    //movie title with two spaces in a row has an empty word
+    @Tag("unit-test")
+    @Test
+    public void validateMovieTitleWithEmptyWord() {
+        String movieTitle = "The  Godfather";
+        ValidationException validationException = assertThrows(ValidationException.class,() -> {
+            Validation.movieTitleValidation(movieTitle);
+        });
+        assertEquals("ERROR: Movie Title {"+movieTitle+"} is wrong",validationException.getMessage());
+    }
+
+    //trailing spaces do not start a new word
+    @Tag("unit-test")
+    @Test
+    public void validateMovieTitleAndIdWithTrailingSpaces() {
+        try{
+            Validation.movieTitleValidation("The Godfather  ");
+            Validation.movieIdValidation("TG002","The Godfather  ");
+        }
+        catch (ValidationException e){
+            fail("ValidationException should not be thrown for trailing spaces");
+        }
+    }
+
+    //user id with a non digit in its first eight characters
+    @Tag("unit-test")
+    @Test
+    public void validateUserIdWithLetterInNumberPart() {
+        String userId = "1234A678X";
+        ValidationException validationException = assertThrows(ValidationException.class,() -> {
+            Validation.userIdValidation(userId);
+        });
+        assertEquals("ERROR: User Id {"+userId+"} is wrong",validationException.getMessage());
+    }
 }
@@ -0,0 +1,70 @@
+package recommendation.server;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    // buckets tile the values without gaps, every value inside its bucket bound
+    @Tag("unit-test")
+    @Test
+    public void testBucketBounds() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.99));
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(10_000, histogram.count());
+        assertEquals(10_000_000, histogram.max());
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long exact = (long) Math.ceil(quantile * 10_000) * 1000;
+            long estimate = histogram.percentile(quantile);
+            assertTrue(estimate >= exact && estimate < exact * 1.125, quantile + ": " + estimate);
+        }
+        assertEquals(10_000_000, histogram.percentile(1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(1.5));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            tasks.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+        assertEquals(40_000, histogram.count());
+        assertEquals(9_999, histogram.max());
+    }
+}
@@ -0,0 +1,259 @@
+package recommendation.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import recommendation.engine.RecommendationSystem;
+import recommendation.engine.Recommender;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.SingleRecommendation;
+import recommendation.model.User;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecommendationServerTest {
+
+    private final MovieCatalog catalog = new MovieCatalog(Arrays.asList(
+            new Movie("The Shawshank Redemption", "TSR001", Arrays.asList("Drama")),
+            new Movie("The Godfather", "TG002", Arrays.asList("Crime", "Drama")),
+            new Movie("The Dark Knight", "TDK003", Arrays.asList("Action", "Crime", "Drama")),
+            new Movie("Toy Story", "TS006", Arrays.asList("Animation"))
+    ));
+
+    private final List<User> users = Arrays.asList(
+            new User("Hassan Ali", "12345678X", Arrays.asList("TSR001")),
+            new User("Ali Mohamed", "87654321W", Arrays.asList("TS006"))
+    );
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private RecommendationServer server;
+
+    @BeforeEach
+    public void start() throws IOException {
+        server = new RecommendationServer(new RecommendationSystem(catalog, users), 0);
+    }
+
+    @AfterEach
+    public void stop() {
+        server.close();
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request, String path) throws IOException, InterruptedException {
+        URI uri = URI.create("http://localhost:" + server.getPort() + path);
+        return client.send(request.uri(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testGetOneUser() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder().GET(), "/recommendations/12345678X");
+        assertEquals(200, response.statusCode());
+        assertEquals("Hassan Ali, 12345678X\nThe Godfather, The Dark Knight\n", response.body());
+
+        response = send(HttpRequest.newBuilder().GET(), "/recommendations/00000000Z");
+        assertEquals(404, response.statusCode());
+        assertEquals("User Id {00000000Z} does not exist\n", response.body());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testPostBatch() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder()
+                .POST(HttpRequest.BodyPublishers.ofString("87654321W\n00000000Z\n\n12345678X\n")), "/recommendations");
+        assertEquals(200, response.statusCode());
+        assertEquals("Ali Mohamed, 87654321W\n\nHassan Ali, 12345678X\nThe Godfather, The Dark Knight\n", response.body());
+
+        response = send(HttpRequest.newBuilder().POST(HttpRequest.BodyPublishers.ofString("00000000Z")), "/recommendations");
+        assertEquals(200, response.statusCode());
+        assertEquals("", response.body());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testRejectedRequests() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder().GET(), "/recommendations");
+        assertEquals(405, response.statusCode());
+        assertEquals("POST", response.headers().firstValue("Allow").orElse(null));
+
+        response = send(HttpRequest.newBuilder().DELETE(), "/recommendations/12345678X");
+        assertEquals(405, response.statusCode());
+        assertEquals(404, send(HttpRequest.newBuilder().GET(), "/recommendations/12345678X/movies").statusCode());
+        assertEquals(404, send(HttpRequest.newBuilder().GET(), "/recommendationsX").statusCode());
+
+        byte[] large = new byte[RecommendationServer.MAX_BODY_BYTES + 1];
+        Arrays.fill(large, (byte) 'A');
+        response = send(HttpRequest.newBuilder().POST(HttpRequest.BodyPublishers.ofByteArray(large)), "/recommendations");
+        assertEquals(413, response.statusCode());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testNullEngine() {
+        assertThrows(IllegalArgumentException.class, () -> new RecommendationServer(null, 0));
+    }
+
+    // an engine whose lookups wait until released, to fill the server
+    private static class BlockingEngine implements Recommender {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public List<SingleRecommendation> getSingleRecommendations() {
+            return List.of();
+        }
+
+        @Override
+        public SingleRecommendation recommendFor(String userId) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testShedsWhenSaturated() throws Exception {
+        server.close();
+        BlockingEngine engine = new BlockingEngine();
+        server = new RecommendationServer(engine, 0, 1, 0, Duration.ofSeconds(10));
+        CompletableFuture<HttpResponse<String>> first = client.sendAsync(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + server.getPort() + "/recommendations/12345678X")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertTrue(engine.entered.await(10, TimeUnit.SECONDS));
+
+        HttpResponse<String> second = send(HttpRequest.newBuilder().GET(), "/recommendations/12345678X");
+        assertEquals(503, second.statusCode());
+        assertEquals("1", second.headers().firstValue("Retry-After").orElse(null));
+        assertEquals(1, server.getShed());
+
+        engine.release.countDown();
+        assertEquals(404, first.get(10, TimeUnit.SECONDS).statusCode());
+        assertEquals(1, server.getLatencies().count());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testQueuedRequestTimesOut() throws Exception {
+        server.close();
+        BlockingEngine engine = new BlockingEngine();
+        server = new RecommendationServer(engine, 0, 1, 1, Duration.ofMillis(200));
+        CompletableFuture<HttpResponse<String>> first = client.sendAsync(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + server.getPort() + "/recommendations/12345678X")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertTrue(engine.entered.await(10, TimeUnit.SECONDS));
+
+        HttpResponse<String> second = send(HttpRequest.newBuilder().GET(), "/recommendations/12345678X");
+        assertEquals(503, second.statusCode());
+        assertEquals("Deadline exceeded\n", second.body());
+        assertEquals(1, server.getTimedOut());
+        assertEquals(0, server.getShed());
+        engine.release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testMetrics() throws Exception {
+        send(HttpRequest.newBuilder().GET(), "/recommendations/12345678X");
+        send(HttpRequest.newBuilder().GET(), "/recommendations/87654321W");
+        HttpResponse<String> response = send(HttpRequest.newBuilder().GET(), "/metrics");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("requests 2\nshed 0\ntimed_out 0\nrunning 0\n"), response.body());
+        assertTrue(response.body().contains("latency_p99_ms "));
+        assertTrue(response.body().contains("latency_max_ms "));
+    }
+
+    // many requests at once on the lazy engine, memoized or not, each with its own answer
+    @Tag("unit-test")
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        server.close();
+        RecommendationSystem lazy = RecommendationSystem.lazy(catalog, users);
+        server = new RecommendationServer(lazy, 0, 4, 1000, Duration.ofSeconds(30));
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String userId = users.get(i % 2).getUserId();
+            responses.add(client.sendAsync(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:" + server.getPort() + "/recommendations/" + userId)).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            HttpResponse<String> response = responses.get(i).get(30, TimeUnit.SECONDS);
+            assertEquals(200, response.statusCode());
+            assertEquals(i % 2 == 0 ? "Hassan Ali, 12345678X\nThe Godfather, The Dark Knight\n" : "Ali Mohamed, 87654321W\n\n",
+                    response.body());
+        }
+        assertEquals(200, server.getLatencies().count());
+    }
+
+    private Socket upload(String body, int contentLength) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.getOutputStream().write(("POST /recommendations HTTP/1.1\r\nHost: localhost\r\nContent-Length: "
+                + contentLength + "\r\n\r\n" + body).getBytes(StandardCharsets.UTF_8));
+        socket.getOutputStream().flush();
+        return socket;
+    }
+
+    // a client still sending its body holds no computing slot
+    @Tag("unit-test")
+    @Test
+    public void testSlowUploadHoldsNoSlot() throws Exception {
+        server.close();
+        server = new RecommendationServer(new RecommendationSystem(catalog, users), 0, 1, 4, Duration.ofSeconds(5));
+        try (Socket stalled = upload("12345678X\n", 100)) {
+            HttpResponse<String> response = send(HttpRequest.newBuilder().GET(), "/recommendations/87654321W");
+            assertEquals(200, response.statusCode());
+            assertEquals(0, server.getTimedOut());
+        }
+    }
+
+    // the upload time counts against the deadline
+    @Tag("unit-test")
+    @Test
+    public void testUploadPastDeadline() throws Exception {
+        server.close();
+        server = new RecommendationServer(new RecommendationSystem(catalog, users), 0, 1, 4, Duration.ofMillis(200));
+        String body = "12345678X\n";
+        try (Socket slow = upload(body.substring(0, 4), body.length())) {
+            Thread.sleep(400);
+            slow.getOutputStream().write(body.substring(4).getBytes(StandardCharsets.UTF_8));
+            slow.getOutputStream().flush();
+            String status = new BufferedReader(new InputStreamReader(slow.getInputStream(), StandardCharsets.UTF_8)).readLine();
+            assertEquals("HTTP/1.1 503 Service Unavailable", status);
+        }
+        assertEquals(1, server.getTimedOut());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testInvalidLimits() {
+        RecommendationSystem engine = new RecommendationSystem(catalog, users);
+        assertThrows(IllegalArgumentException.class, () -> new RecommendationServer(engine, 0, 0, 1, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new RecommendationServer(engine, 0, 1, -1, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new RecommendationServer(engine, 0, 1, 1, Duration.ZERO));
+    }
+}
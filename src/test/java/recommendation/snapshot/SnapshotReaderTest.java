@@ -0,0 +1,141 @@
+package recommendation.snapshot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import recommendation.model.MovieCatalog;
+import recommendation.model.OffHeapUserStore;
+import recommendation.model.User;
+import recommendation.parser.MovieParser;
+import recommendation.parser.UserParser;
+import recommendation.parser.UserStorage;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotReaderTest {
+
+    @TempDir
+    Path directory;
+
+    private String movieFile;
+    private String userFile;
+    private String snapshotFile;
+    private MovieCatalog catalog;
+    private List<User> users;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        // copies, so the tests can touch the sources without affecting the fixtures
+        movieFile = Files.copy(Path.of("src/test/resources/movies/valid_movies.txt"), directory.resolve("movies.txt"),
+                StandardCopyOption.COPY_ATTRIBUTES).toString();
+        userFile = Files.copy(Path.of("src/test/resources/users/valid_users.txt"), directory.resolve("users.txt"),
+                StandardCopyOption.COPY_ATTRIBUTES).toString();
+        snapshotFile = directory.resolve("catalog.snapshot").toString();
+
+        MovieParser movieParser = new MovieParser(movieFile);
+        catalog = new MovieCatalog(movieParser.getMovies(), movieParser.getGenres());
+        users = new UserParser(userFile, catalog).getUsers();
+        assertTrue(new SnapshotWriter(snapshotFile, movieFile, userFile, catalog, users).success());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testRoundTrip() {
+        SnapshotReader reader = new SnapshotReader(snapshotFile, movieFile, userFile);
+        assertTrue(reader.success(), reader.getError());
+        assertEquals(catalog.getMovies().toString(), reader.getCatalog().getMovies().toString());
+        assertEquals(catalog.getGenres().getGenres(), reader.getCatalog().getGenres().getGenres());
+        assertEquals(users.toString(), reader.getUsers().toString());
+        assertEquals(users.get(0).getMoviePositions(catalog),
+                reader.getUsers().get(0).getMoviePositions(reader.getCatalog()));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testOffHeapUsers() {
+        SnapshotReader reader = new SnapshotReader(snapshotFile, movieFile, userFile, UserStorage.OFF_HEAP);
+        assertTrue(reader.success(), reader.getError());
+        assertInstanceOf(OffHeapUserStore.class, reader.getUsers());
+        assertEquals(users.toString(), reader.getUsers().toString());
+        assertEquals(users.get(1).getMoviePositions(catalog),
+                reader.getUsers().get(1).getMoviePositions(reader.getCatalog()));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testStaleWhenSourceChanges() throws IOException {
+        Path users = Path.of(userFile);
+        Files.setLastModifiedTime(users, FileTime.fromMillis(Files.getLastModifiedTime(users).toMillis() + 1000));
+        SnapshotReader reader = new SnapshotReader(snapshotFile, movieFile, userFile);
+        assertFalse(reader.success());
+        assertEquals("Snapshot is stale", reader.getError());
+        assertNull(reader.getCatalog());
+        assertNull(reader.getUsers());
+    }
+
+    // a source changed while it was parsed leaves the snapshot stale, not stamped as matching
+    @Tag("unit-test")
+    @Test
+    public void testSourceChangedDuringParse() throws IOException {
+        SnapshotSources sources = SnapshotSources.of(movieFile, userFile);
+        List<User> parsed = new UserParser(userFile, catalog).getUsers();
+        Path users = Path.of(userFile);
+        Files.setLastModifiedTime(users, FileTime.fromMillis(Files.getLastModifiedTime(users).toMillis() + 1000));
+        assertTrue(new SnapshotWriter(snapshotFile, sources, catalog, parsed).success());
+        assertEquals("Snapshot is stale", new SnapshotReader(snapshotFile, movieFile, userFile).getError());
+
+        assertTrue(new SnapshotWriter(snapshotFile, SnapshotSources.of(movieFile, userFile), catalog, parsed).success());
+        assertTrue(new SnapshotReader(snapshotFile, movieFile, userFile).success());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testCorrupted() throws IOException {
+        byte[] bytes = Files.readAllBytes(Path.of(snapshotFile));
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(Path.of(snapshotFile), bytes);
+        assertEquals("Snapshot is corrupted", new SnapshotReader(snapshotFile, movieFile, userFile).getError());
+
+        Files.write(Path.of(snapshotFile), new byte[]{1, 2, 3});
+        assertEquals("Snapshot is corrupted", new SnapshotReader(snapshotFile, movieFile, userFile).getError());
+    }
+
+    // a file too large to map is reported as such, not as corrupted; the sparse file takes no disk space
+    @Tag("unit-test")
+    @Test
+    public void testTooLarge() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.setLength(SnapshotFormat.MAX_SIZE + 1);
+        }
+        assertEquals("Snapshot of " + (SnapshotFormat.MAX_SIZE + 1) + " bytes is larger than the "
+                + SnapshotFormat.MAX_SIZE + " bytes that can be mapped", new SnapshotReader(snapshotFile, movieFile, userFile).getError());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testUnsupportedVersion() throws IOException {
+        byte[] bytes = Files.readAllBytes(Path.of(snapshotFile));
+        ByteBuffer.wrap(bytes).putInt(4, SnapshotFormat.VERSION + 1);
+        Files.write(Path.of(snapshotFile), bytes);
+        assertEquals("Snapshot version " + (SnapshotFormat.VERSION + 1) + " is not supported",
+                new SnapshotReader(snapshotFile, movieFile, userFile).getError());
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testMissingSnapshot() {
+        SnapshotReader reader = new SnapshotReader(directory.resolve("none.snapshot").toString(), movieFile, userFile);
+        assertEquals("Snapshot not found", reader.getError());
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotReader(null, movieFile, userFile));
+    }
+}
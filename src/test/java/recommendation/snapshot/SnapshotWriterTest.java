@@ -0,0 +1,88 @@
+package recommendation.snapshot;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import recommendation.model.Movie;
+import recommendation.model.MovieCatalog;
+import recommendation.model.User;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotWriterTest {
+
+    private static final String MOVIE_FILE = "src/test/resources/movies/valid_movies.txt";
+    private static final String USER_FILE = "src/test/resources/users/valid_users.txt";
+
+    @TempDir
+    Path directory;
+
+    private final MovieCatalog catalog = new MovieCatalog(Arrays.asList(
+            new Movie("The Shawshank Redemption", "TSR001", Arrays.asList("Drama")),
+            new Movie("The Godfather", "TG002", Arrays.asList("Crime", "Drama"))
+    ));
+
+    // the previous snapshot is replaced in one move, no temporary file is left behind
+    @Tag("unit-test")
+    @Test
+    public void testReplacesSnapshot() throws IOException {
+        Path snapshot = directory.resolve("catalog.snapshot");
+        Files.writeString(snapshot, "old");
+        List<User> users = List.of(new User("Hassan Ali", "12345678X", Arrays.asList("TG002")));
+        SnapshotWriter writer = new SnapshotWriter(snapshot.toString(), MOVIE_FILE, USER_FILE, catalog, users);
+        assertTrue(writer.success(), writer.getError());
+        assertNotEquals("old", Files.readString(snapshot, StandardCharsets.ISO_8859_1));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(snapshot), files.toList());
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testUnknownMovieNotWritten() throws IOException {
+        Path snapshot = directory.resolve("catalog.snapshot");
+        List<User> users = List.of(new User("Hassan Ali", "12345678X", Arrays.asList("NON001")));
+        SnapshotWriter writer = new SnapshotWriter(snapshot.toString(), MOVIE_FILE, USER_FILE, catalog, users);
+        assertFalse(writer.success());
+        assertEquals("Movie Id {NON001} is not in the catalog", writer.getError());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    // the size is known before writing, and a snapshot too large to be mapped is not started
+    @Tag("unit-test")
+    @Test
+    public void testTooLargeNotWritten() throws IOException {
+        Path snapshot = directory.resolve("catalog.snapshot");
+        List<User> users = List.of(new User("Hassan Ali", "12345678X", Arrays.asList("TG002", "TSR001")));
+        long size = SnapshotWriter.sizeOf(catalog, users);
+        assertTrue(new SnapshotWriter(snapshot.toString(), SnapshotSources.of(MOVIE_FILE, USER_FILE), catalog, users, size).success());
+        assertEquals(size, Files.size(snapshot));
+
+        Files.delete(snapshot);
+        SnapshotWriter writer = new SnapshotWriter(snapshot.toString(), SnapshotSources.of(MOVIE_FILE, USER_FILE), catalog, users, size - 1);
+        assertFalse(writer.success());
+        assertEquals("Snapshot of " + size + " bytes would be larger than the " + (size - 1) + " bytes that can be mapped",
+                writer.getError());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testMissingSource() {
+        String snapshot = directory.resolve("catalog.snapshot").toString();
+        SnapshotWriter writer = new SnapshotWriter(snapshot, "none.txt", USER_FILE, catalog, List.of());
+        assertFalse(writer.success());
+        assertFalse(Files.exists(Path.of(snapshot)));
+    }
+}
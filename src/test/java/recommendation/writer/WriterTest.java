@@ -1,4 +1,58 @@
 package recommendation.writer;
 
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import recommendation.model.Movie;
+import recommendation.model.SingleRecommendation;
+import recommendation.model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 public class WriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Movie shawshank = new Movie("The Shawshank Redemption", "TSR001", Arrays.asList("Drama"));
+    private final Movie godfather = new Movie("The Godfather", "TG002", Arrays.asList("Crime", "Drama"));
+    private final Movie darkKnight = new Movie("The Dark Knight", "TDK003", Arrays.asList("Action", "Crime", "Drama"));
+
+    @Tag("unit-test")
+    @Test
+    public void testRecordFormat() throws IOException {
+        Path file = tempDir.resolve("recommendations.txt");
+        try (RecommendationWriter writer = new RecommendationWriter(file.toString())) {
+            writer.write(new SingleRecommendation(new User("Hassan Ali", "12345678X", List.of("TSR001", "TDK003")),
+                    List.of(godfather)));
+            writer.write(new SingleRecommendation(new User("Ali Mohamed", "87654321W", List.of("TG002")),
+                    List.of(darkKnight, shawshank)));
+        }
+        assertEquals("Hassan Ali, 12345678X\nThe Godfather\nAli Mohamed, 87654321W\nThe Dark Knight, The Shawshank Redemption\n",
+                Files.readString(file));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testUserWithoutRecommendations() throws IOException {
+        Path file = tempDir.resolve("recommendations.txt");
+        try (RecommendationWriter writer = new RecommendationWriter(file.toString())) {
+            writer.write(new SingleRecommendation(new User("Test User", "99999999Z", List.of("TSR001")), List.of()));
+        }
+        assertEquals("Test User, 99999999Z\n\n", Files.readString(file));
+    }
+
+    @Tag("unit-test")
+    @Test
+    public void testEmptyOutput() throws IOException {
+        Path file = tempDir.resolve("recommendations.txt");
+        new RecommendationWriter(file.toString()).close();
+        assertEquals("", Files.readString(file));
+    }
 }